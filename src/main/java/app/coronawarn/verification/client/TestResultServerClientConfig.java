@@ -24,15 +24,28 @@
 import app.coronawarn.verification.exception.VerificationServerException;
 import feign.Client;
 import feign.httpclient.ApacheHttpClient;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.httpcomponents.PoolingHttpClientConnectionManagerMetricsBinder;
 import java.io.IOException;
 import java.security.GeneralSecurityException;
+import java.util.concurrent.TimeUnit;
 import javax.net.ssl.HostnameVerifier;
 import javax.net.ssl.SSLContext;
 import lombok.RequiredArgsConstructor;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
 import org.apache.http.conn.ssl.DefaultHostnameVerifier;
 import org.apache.http.conn.ssl.NoopHostnameVerifier;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
 import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.protocol.HttpContext;
 import org.apache.http.ssl.SSLContextBuilder;
+import org.apache.http.ssl.SSLContexts;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -59,28 +72,54 @@ public class TestResultServerClientConfig {
   private String trustStorePath;
   @Value("${cwa-testresult-server.ssl.trust-store-password}")
   private char[] trustStorePassword;
+  @Value("${cwa-testresult-server.pool.max-total}")
+  private int poolMaxTotal;
+  @Value("${cwa-testresult-server.pool.max-per-route}")
+  private int poolMaxPerRoute;
+  @Value("${cwa-testresult-server.pool.validate-after-inactivity}")
+  private int poolValidateAfterInactivity;
+  @Value("${cwa-testresult-server.pool.max-idle}")
+  private long poolMaxIdle;
+  @Value("${cwa-testresult-server.pool.keep-alive}")
+  private long poolKeepAlive;
+  @Value("${cwa-testresult-server.pool.lease-timeout}")
+  private int poolLeaseTimeout;
+
+  private final MeterRegistry meterRegistry;
 
   /**
-   * Configure the client dependent on the ssl properties.
+   * Configure the client dependent on the ssl and pool properties.
    *
    * @return an Apache Http Client with or without SSL features
    */
   @Bean
   public Client client() {
-    if (enabled) {
-      return new ApacheHttpClient(
-        HttpClientBuilder
-          .create()
-          .setSSLContext(getSslContext())
-          .setSSLHostnameVerifier(getSslHostnameVerifier())
-          .build()
-      );
-    }
+    SSLContext sslContext = enabled ? getSslContext() : SSLContexts.createDefault();
+    Registry<ConnectionSocketFactory> socketFactoryRegistry = RegistryBuilder.<ConnectionSocketFactory>create()
+      .register("http", PlainConnectionSocketFactory.getSocketFactory())
+      .register("https", new SSLConnectionSocketFactory(sslContext, getSslHostnameVerifier()))
+      .build();
+    TimedConnectionManager connectionManager = new TimedConnectionManager(socketFactoryRegistry, meterRegistry);
+    connectionManager.setMaxTotal(poolMaxTotal);
+    connectionManager.setDefaultMaxPerRoute(poolMaxPerRoute);
+    connectionManager.setValidateAfterInactivity(poolValidateAfterInactivity);
+    new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, "testresult-server").bindTo(meterRegistry);
     return new ApacheHttpClient(HttpClientBuilder.create()
-      .setSSLHostnameVerifier(getSslHostnameVerifier())
+      .setConnectionManager(connectionManager)
+      .setKeepAliveStrategy(this::getKeepAliveDuration)
+      .evictExpiredConnections()
+      .evictIdleConnections(poolMaxIdle, TimeUnit.MILLISECONDS)
+      // with two-way ssl the connections would otherwise be bound to the client certificate and not be reused
+      .disableConnectionState()
+      .setDefaultRequestConfig(RequestConfig.custom().setConnectionRequestTimeout(poolLeaseTimeout).build())
       .build());
   }
 
+  private long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+    long duration = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+    return duration > 0 ? Math.min(duration, poolKeepAlive) : poolKeepAlive;
+  }
+
   private SSLContext getSslContext() {
     try {
       SSLContextBuilder builder = SSLContextBuilder
@@ -0,0 +1,82 @@
+/*
+ * Corona-Warn-App / cwa-verification
+ *
+ * (C) 2020, T-Systems International GmbH
+ *
+ * Deutsche Telekom AG and all other contributors /
+ * copyright owners license this file to you under the Apache
+ * License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package app.coronawarn.verification.client;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.apache.http.HttpClientConnection;
+import org.apache.http.config.Registry;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+
+/**
+ * This {@link PoolingHttpClientConnectionManager} records the time a request waits for the lease of a pooled
+ * connection.
+ */
+public class TimedConnectionManager extends PoolingHttpClientConnectionManager {
+
+  private static final String LEASE_TIMER_NAME = "verification_testresult_client.lease";
+
+  private final Timer leaseTimer;
+
+  /**
+   * Constructor for the TimedConnectionManager.
+   *
+   * @param socketFactoryRegistry the socket factories per scheme
+   * @param meterRegistry the registry of the lease timer
+   */
+  public TimedConnectionManager(Registry<ConnectionSocketFactory> socketFactoryRegistry,
+                                MeterRegistry meterRegistry) {
+    super(socketFactoryRegistry);
+    this.leaseTimer = Timer.builder(LEASE_TIMER_NAME)
+      .description("Time waited for the lease of a connection to the test result server")
+      .register(meterRegistry);
+  }
+
+  @Override
+  public ConnectionRequest requestConnection(HttpRoute route, Object state) {
+    ConnectionRequest request = super.requestConnection(route, state);
+    return new ConnectionRequest() {
+      @Override
+      public HttpClientConnection get(long timeout, TimeUnit timeUnit)
+        throws InterruptedException, ExecutionException, ConnectionPoolTimeoutException {
+        long start = System.nanoTime();
+        try {
+          return request.get(timeout, timeUnit);
+        } finally {
+          leaseTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+      }
+
+      @Override
+      public boolean cancel() {
+        return request.cancel();
+      }
+    };
+  }
+}
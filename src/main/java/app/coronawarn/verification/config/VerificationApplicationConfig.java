@@ -21,6 +21,8 @@
 
 package app.coronawarn.verification.config;
 
+import java.util.HashMap;
+import java.util.Map;
 import javax.validation.constraints.Max;
 import javax.validation.constraints.Min;
 import lombok.Getter;
@@ -49,6 +51,11 @@ public class VerificationApplicationConfig {
   private Monitoring monitoring = new Monitoring();
   private Jwt jwt = new Jwt();
   private Request request = new Request();
+  private FakeTimer fakeTimer = new FakeTimer();
+  private FakeDelay fakeDelay = new FakeDelay();
+  private TestResultCache testResultCache = new TestResultCache();
+  private TestResultClient testResultClient = new TestResultClient();
+  private TestResultAck testResultAck = new TestResultAck();
 
   /**
    * Configure the Tan with build property values and return the configured parameters.
@@ -59,6 +66,7 @@ public static class Tan {
 
     private Tele tele = new Tele();
     private Valid valid = new Valid();
+    private Verify verify = new Verify();
 
     /**
      * Configure the Tele with build property values and return the configured parameters.
@@ -69,6 +77,7 @@ public static class Tele {
 
       private Valid valid = new Valid();
       private RateLimiting rateLimiting = new RateLimiting();
+      private Pool pool = new Pool();
 
       /**
        * Configure the TeleValid with build property values and return the configured parameters.
@@ -96,6 +105,22 @@ public static class RateLimiting {
         private int count = 1000;
         // Threshold in percent for a warning in log stream
         private int thresholdInPercent = 80;
+        // Count the teletans in the shared database instead of in memory, e.g. for multiple instances
+        private boolean shared = false;
+      }
+
+      /**
+       * Configure the pool of pre-generated teletans.
+       */
+      @Getter
+      @Setter
+      public static class Pool {
+
+        private boolean enabled = true;
+        // Maximum number of pre-generated teletans
+        private int size = 100;
+        // The pool is refilled, if it holds less teletans
+        private int lowWatermark = 20;
       }
     }
 
@@ -109,6 +134,17 @@ public static class Valid {
       // Number of days that TAN remains valid
       int days = 14;
     }
+
+    /**
+     * Configure the Verify with build property values and return the configured parameters.
+     */
+    @Getter
+    @Setter
+    public static class Verify {
+
+      // Maximum number of TANs in a batch verification request
+      int batchLimit = 100;
+    }
   }
 
   /**
@@ -144,6 +180,8 @@ public static class Monitoring {
   public static class Entities {
 
     private Cleanup cleanup = new Cleanup();
+    // Look up the hashes in the binary hash columns, which are filled and indexed by the liquibase migration then
+    private boolean binaryHashes = false;
 
     /**
      * Configure the Cleanup with build property values and return the configured parameters.
@@ -153,6 +191,14 @@ public static class Entities {
     public static class Cleanup {
 
       private Integer days = 21;
+      // Maximum number of entities deleted in one transaction
+      private int chunkSize = 1000;
+      // Number of milliseconds to pause between two chunks
+      private long chunkPause = 100;
+      // Drop expired daily partitions before deleting rows (PostgreSQL with liquibase context "partitioned")
+      private boolean partitioned = false;
+      // Number of days the daily partitions are created ahead
+      private int partitionsAhead = 3;
     }
 
   }
@@ -166,6 +212,10 @@ public static class Jwt {
 
     private String server = "http://localhost:8080";
     private Boolean enabled = false;
+    // Number of milliseconds between the background refreshes of the IAM certificates
+    private long certsRefreshRate = 300000;
+    // Minimum number of milliseconds between two refetches of the IAM certificates caused by an unknown key id
+    private long certsMinRefetchInterval = 10000;
   }
 
   /**
@@ -176,5 +226,116 @@ public static class Jwt {
   public static class Request {
 
     private long sizelimit = 10000;
+    private Async async = new Async();
+
+    /**
+     * Configure the async execution of the external endpoints.
+     */
+    @Getter
+    @Setter
+    public static class Async {
+
+      // Execute the external endpoints on the async request threads instead of the container threads
+      private boolean enabled = false;
+      // Number of async request threads
+      private int threads = 50;
+      // Number of requests which may wait for an async request thread
+      private int queueCapacity = 500;
+      // Number of milliseconds after which a request is answered with 504
+      private long timeout = 30000;
+      // Default number of concurrent requests per endpoint
+      private int endpointLimit = 200;
+      // Number of concurrent requests per endpoint route, overriding the default
+      private Map<String, Integer> endpointLimits = new HashMap<>();
+    }
+  }
+
+  /**
+   * Configure the timer which delays the fake responses.
+   */
+  @Getter
+  @Setter
+  public static class FakeTimer {
+
+    // Number of milliseconds of one tick of the timer wheel
+    private long tickDuration = 10;
+    // Number of buckets of the timer wheel, rounded down to a power of two
+    private int wheelSize = 512;
+    // Maximum number of pending fake responses, further fake requests are answered with 503
+    private int maxPending = 100000;
+  }
+
+  /**
+   * Configure the model of the fake delays.
+   */
+  @Getter
+  @Setter
+  public static class FakeDelay {
+
+    // The fake delay model, "histogram" or "poisson"
+    private String model = "histogram";
+    // Number of milliseconds of one of the rotating windows of the latency histograms
+    private long window = 60000;
+    // Minimum number of real latencies in the histogram before fake delays are drawn from it
+    private long minSamples = 100;
+  }
+
+  /**
+   * Configure the cache of the test results by hashed GUID.
+   */
+  @Getter
+  @Setter
+  public static class TestResultCache {
+
+    // Cache the test results by hashed GUID
+    private boolean enabled = true;
+    // Maximum number of cached test results
+    private int maxSize = 100000;
+    // Number of milliseconds a pending test result is cached
+    private long pendingTtl = 5000;
+    // Number of milliseconds a final test result is cached
+    private long finalTtl = 60000;
+    // Number of milliseconds a client error of the test result server is cached
+    private long errorTtl = 5000;
+  }
+
+  /**
+   * Configure the circuit breaker and bulkheads of the calls to the test result server.
+   */
+  @Getter
+  @Setter
+  public static class TestResultClient {
+
+    // Number of consecutive failed calls which open the circuit breaker
+    private int failureThreshold = 5;
+    // Number of milliseconds the circuit breaker stays open before a probe call
+    private long openDuration = 10000;
+    // Number of concurrent poll calls
+    private int pollLimit = 100;
+    // Number of concurrent ack calls
+    private int ackLimit = 50;
+    // Number of concurrent result calls
+    private int resultLimit = 100;
+  }
+
+  /**
+   * Configure the queue of the acks forwarded to the test result server.
+   */
+  @Getter
+  @Setter
+  public static class TestResultAck {
+
+    // Store the acks and forward them by the scheduled flush instead of on the request thread
+    private boolean enabled = true;
+    // Number of milliseconds between the flushes
+    private long flushRate = 1000;
+    // Number of acks loaded per batch
+    private int batchSize = 100;
+    // Number of milliseconds before the first retry of a failed ack, doubled on each further retry
+    private long backoff = 1000;
+    // Maximum number of milliseconds between two retries
+    private long maxBackoff = 300000;
+    // Number of attempts after which a failing ack is dropped
+    private int maxAttempts = 10;
   }
 }
@@ -33,6 +33,7 @@
 import app.coronawarn.verification.model.TanSourceOfTrust;
 import app.coronawarn.verification.model.TestResult;
 import app.coronawarn.verification.service.AppSessionService;
+import app.coronawarn.verification.service.AsyncRequestService;
 import app.coronawarn.verification.service.FakeDelayService;
 import app.coronawarn.verification.service.FakeRequestService;
 import app.coronawarn.verification.service.TanService;
@@ -95,6 +96,9 @@ public class ExternalTanController {
   @NonNull
   private final FakeRequestService fakeRequestController;
 
+  @NonNull
+  private final AsyncRequestService asyncRequestService;
+
   /**
    * This method generates a transaction number by a Registration Token, if the state of the COVID-19 lab-test is
    * positive.
@@ -120,6 +124,10 @@ public DeferredResult<ResponseEntity<Tan>> generateTan(@Valid @RequestBody Regis
     if ((fake != null) && (fake.equals("1"))) {
       return fakeRequestController.generateTan(registrationToken);
     }
+    return asyncRequestService.execute(TAN_ROUTE, () -> generateTan(registrationToken));
+  }
+
+  private ResponseEntity<Tan> generateTan(RegistrationToken registrationToken) {
     StopWatch stopWatch = new StopWatch();
     stopWatch.start();
     Optional<VerificationAppSession> actual
@@ -150,13 +158,11 @@ public DeferredResult<ResponseEntity<Tan>> generateTan(@Valid @RequestBody Regis
         appSession.incrementTanCounter();
         appSessionService.saveAppSession(appSession);
         String generatedTan = tanService.generateVerificationTan(tanSourceOfTrust);
-        Tan returnTan = new Tan(generatedTan, RandomStringUtils.randomAlphanumeric(RESPONSE_PADDING_LENGTH));
+        final Tan returnTan = new Tan(generatedTan, RandomStringUtils.randomAlphanumeric(RESPONSE_PADDING_LENGTH));
         stopWatch.stop();
         fakeDelayService.updateFakeTanRequestDelay(stopWatch.getTotalTimeMillis());
-        DeferredResult<ResponseEntity<Tan>> deferredResult = new DeferredResult<>();
-        deferredResult.setResult(ResponseEntity.status(HttpStatus.CREATED).body(returnTan));
         log.info("Returning the successfully generated tan.");
-        return deferredResult;
+        return ResponseEntity.status(HttpStatus.CREATED).body(returnTan);
       }
       throw new VerificationServerException(HttpStatus.BAD_REQUEST,
         "The maximum of generating tans for this registration token is reached");
@@ -31,6 +31,7 @@
 import app.coronawarn.verification.model.RegistrationToken;
 import app.coronawarn.verification.model.TestResult;
 import app.coronawarn.verification.service.AppSessionService;
+import app.coronawarn.verification.service.AsyncRequestService;
 import app.coronawarn.verification.service.FakeDelayService;
 import app.coronawarn.verification.service.FakeRequestService;
 import app.coronawarn.verification.service.TestResultServerService;
@@ -86,6 +87,9 @@ public class ExternalTestStateController {
   @NonNull
   private final FakeDelayService fakeDelayService;
 
+  @NonNull
+  private final AsyncRequestService asyncRequestService;
+
   /**
    * Returns the test status of the COVID-19 test with cwa-fake header.
    *
@@ -113,13 +117,16 @@ public DeferredResult<ResponseEntity<TestResult>> getTestState(
     if ((fake != null) && (fake.equals("1"))) {
       return fakeRequestController.getTestState();
     }
+    return asyncRequestService.execute(TESTRESULT_ROUTE, () -> getTestState(registrationToken));
+  }
+
+  private ResponseEntity<TestResult> getTestState(RegistrationToken registrationToken) {
     StopWatch stopWatch = new StopWatch();
     stopWatch.start();
     Optional<VerificationAppSession> appSession =
       appSessionService.getAppSessionByToken(registrationToken.getRegistrationToken());
     if (appSession.isPresent()) {
       AppSessionSourceOfTrust sourceOfTrust = appSession.get().getSourceOfTrust();
-      DeferredResult<ResponseEntity<TestResult>> deferredResult = new DeferredResult<>();
 
       switch (sourceOfTrust) {
         case HASHED_GUID:
@@ -131,16 +138,13 @@ public DeferredResult<ResponseEntity<TestResult>> getTestState(
           log.info("The result for registration token based on hashed Guid will be returned.");
           stopWatch.stop();
           fakeDelayService.updateFakeTestRequestDelay(stopWatch.getTotalTimeMillis());
-          deferredResult.setResult(ResponseEntity.ok(testResult));
-          return deferredResult;
+          return ResponseEntity.ok(testResult);
         case TELETAN:
           log.info("The result for registration token based on teleTAN will be returned.");
           stopWatch.stop();
           fakeDelayService.updateFakeTestRequestDelay(stopWatch.getTotalTimeMillis());
-          deferredResult.setResult(ResponseEntity.ok(
-            new TestResult(LabTestResult.POSITIVE, TestResult.ResultChannel.LAB,
-              RandomStringUtils.randomAlphanumeric(RESPONSE_PADDING_LENGTH))));
-          return deferredResult;
+          return ResponseEntity.ok(new TestResult(LabTestResult.POSITIVE, TestResult.ResultChannel.LAB,
+            RandomStringUtils.randomAlphanumeric(RESPONSE_PADDING_LENGTH)));
         default:
           stopWatch.stop();
           throw new VerificationServerException(HttpStatus.BAD_REQUEST,
@@ -5,10 +5,12 @@
 import app.coronawarn.verification.model.RegistrationToken;
 import app.coronawarn.verification.model.RegistrationTokenKeyType;
 import app.coronawarn.verification.model.RegistrationTokenRequest;
+import app.coronawarn.verification.model.TeleTanVerification;
 import app.coronawarn.verification.service.AppSessionService;
 import app.coronawarn.verification.service.FakeDelayService;
 import app.coronawarn.verification.service.FakeRequestService;
 import app.coronawarn.verification.service.TanService;
+import app.coronawarn.verification.service.TeleTanVerificationContext;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
@@ -58,6 +60,9 @@ public class ExternalTokenController {
   @NonNull
   private final FakeDelayService fakeDelayService;
 
+  @NonNull
+  private final TeleTanVerificationContext teleTanVerificationContext;
+
   /**
    * This method generates a registrationToken by a hashed guid or a teleTAN.
    * @param request {@link RegistrationTokenRequest}
@@ -94,9 +99,12 @@ public DeferredResult<ResponseEntity<RegistrationToken>> generateRegistrationTok
         deferredResult.setResult(responseEntity);
         return deferredResult;
       case TELETAN:
-        ResponseEntity<RegistrationToken> response = appSessionService.generateRegistrationTokenByTeleTan(key);
-        Optional<VerificationTan> optional = tanService.getEntityByTan(key);
-        if (optional.isPresent()) {
+        TeleTanVerification verification = teleTanVerificationContext.getVerification(key)
+          .orElseGet(() -> tanService.getTeleTanVerification(key));
+        Optional<VerificationTan> optional = verification.getEntity();
+        if (verification.isVerified() && optional.isPresent()) {
+          final ResponseEntity<RegistrationToken> response =
+            appSessionService.generateRegistrationTokenByTeleTanHash(verification.getTeleTanHash());
           VerificationTan teleTan = optional.get();
           teleTan.setRedeemed(true);
           tanService.saveTan(teleTan);
@@ -21,16 +21,21 @@
 
 package app.coronawarn.verification.controller;
 
+import app.coronawarn.verification.config.VerificationApplicationConfig;
 import app.coronawarn.verification.exception.VerificationServerException;
 import app.coronawarn.verification.model.AuthorizationToken;
 import app.coronawarn.verification.model.Tan;
+import app.coronawarn.verification.model.TanVerificationBatchRequest;
+import app.coronawarn.verification.model.TanVerificationBatchResponse;
+import app.coronawarn.verification.model.TanVerificationStatus;
 import app.coronawarn.verification.model.TeleTan;
 import app.coronawarn.verification.service.JwtService;
 import app.coronawarn.verification.service.TanService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
-import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
 import javax.validation.Valid;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
@@ -61,6 +66,10 @@ public class InternalTanController {
    * The route to the tan verification endpoint.
    */
   public static final String TAN_VERIFY_ROUTE = "/tan/verify";
+  /**
+   * The route to the tan batch verification endpoint.
+   */
+  public static final String TAN_VERIFY_BATCH_ROUTE = "/tan/verify/batch";
   /**
    * The route to the teleTAN generation endpoint.
    */
@@ -72,6 +81,9 @@ public class InternalTanController {
   @NonNull
   private final JwtService jwtService;
 
+  @NonNull
+  private final VerificationApplicationConfig verificationApplicationConfig;
+
   /**
    * This provided REST method verifies the transaction number (TAN).
    *
@@ -89,18 +101,41 @@ public class InternalTanController {
     consumes = MediaType.APPLICATION_JSON_VALUE
   )
   public ResponseEntity<?> verifyTan(@Valid @RequestBody Tan tan) {
-    return tanService.getEntityByTan(tan.getTan())
-      .filter(t -> t.canBeRedeemed(LocalDateTime.now()))
-      .map(t -> {
-        tanService.deleteTan(t);
-        log.info("The Tan is valid.");
-        return t;
-      })
-      .map(t -> ResponseEntity.ok().build())
-      .orElseGet(() -> {
-        log.info("The Tan is invalid.");
-        throw new VerificationServerException(HttpStatus.NOT_FOUND, "No Tan found or Tan is invalid");
-      });
+    if (tanService.redeemTan(tan.getTan())) {
+      log.info("The Tan is valid.");
+      return ResponseEntity.ok().build();
+    }
+    log.info("The Tan is invalid.");
+    throw new VerificationServerException(HttpStatus.NOT_FOUND, "No Tan found or Tan is invalid");
+  }
+
+  /**
+   * This provided REST method verifies a batch of transaction numbers (TAN).
+   *
+   * @param request - the transaction numbers, which need to be verified {@link TanVerificationBatchRequest}
+   * @return HTTP 200 with the verification status of each TAN. HTTP 400, if the batch is too large.
+   */
+  @Operation(
+    summary = "Verify a batch of provided Tans",
+    description = "The provided Tans are verified to be formerly issued by the verification server"
+  )
+  @ApiResponses(value = {
+    @ApiResponse(responseCode = "200", description = "The verification status of each Tan in the order of the request"),
+    @ApiResponse(responseCode = "400", description = "The batch is empty, too large or contains an invalid Tan")})
+  @PostMapping(value = TAN_VERIFY_BATCH_ROUTE,
+    consumes = MediaType.APPLICATION_JSON_VALUE,
+    produces = MediaType.APPLICATION_JSON_VALUE
+  )
+  public ResponseEntity<TanVerificationBatchResponse> verifyTans(
+    @Valid @RequestBody TanVerificationBatchRequest request) {
+    int batchLimit = verificationApplicationConfig.getTan().getVerify().getBatchLimit();
+    if (request.getTans().size() > batchLimit) {
+      throw new VerificationServerException(HttpStatus.BAD_REQUEST, "The batch exceeds the limit of " + batchLimit);
+    }
+    List<TanVerificationStatus> results = tanService.redeemTans(
+      request.getTans().stream().map(Tan::getTan).collect(Collectors.toList()));
+    log.info("The batch of {} Tans is verified.", results.size());
+    return ResponseEntity.ok(new TanVerificationBatchResponse(results));
   }
 
   /**
@@ -3,9 +3,10 @@
 
 import app.coronawarn.verification.model.MobileTestPollingRequest;
 import app.coronawarn.verification.model.MobileTestResultRequest;
+import app.coronawarn.verification.service.AsyncRequestService;
 import app.coronawarn.verification.service.FakeDelayService;
 import app.coronawarn.verification.service.FakeRequestService;
-import app.coronawarn.verification.service.TestResultServerService;
+import app.coronawarn.verification.service.TestResultAckService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
@@ -41,7 +42,7 @@ public class MobileTestAckController {
   public static final String TESTRESULT_ACK = "/testresult/ack";
 
   @NonNull
-  private final TestResultServerService testResultServerService;
+  private final TestResultAckService testResultAckService;
 
   @NonNull
   private final FakeDelayService fakeDelayService;
@@ -49,6 +50,9 @@ public class MobileTestAckController {
   @NonNull
   private final FakeRequestService fakeRequestController;
 
+  @NonNull
+  private final AsyncRequestService asyncRequestService;
+
   /**
    * Acknowledges the reception of a COVID-19 test result.
    *
@@ -73,25 +77,18 @@ public DeferredResult<ResponseEntity<Void>> ackTestResult(
       .fromMobileTestPollingRequest(mobileTestPollingRequest);
 
     if (mobileTestResultRequest.isFakeRequest()) {
-
       return fakeRequestController.getAck();
-
-    } else {
-
-      StopWatch stopWatch = new StopWatch();
-      stopWatch.start();
-
-      ResponseEntity<Void> ackResponse = testResultServerService.ackTestResult(
-        MobileTestResultRequest.fromMobileTestPollingRequest(mobileTestPollingRequest));
-      DeferredResult<ResponseEntity<Void>> deferredResult = new DeferredResult<>();
-      deferredResult.setResult(ackResponse);
-
-      stopWatch.stop();
-      fakeDelayService.updateFakeAckRequestDelay(stopWatch.getTotalTimeMillis());
-      return deferredResult;
-
     }
+    return asyncRequestService.execute(TESTRESULT_ACK, () -> ackTestResult(mobileTestResultRequest));
+  }
 
+  private ResponseEntity<Void> ackTestResult(MobileTestResultRequest mobileTestResultRequest) {
+    StopWatch stopWatch = new StopWatch();
+    stopWatch.start();
+    ResponseEntity<Void> ackResponse = testResultAckService.ackTestResult(mobileTestResultRequest);
+    stopWatch.stop();
+    fakeDelayService.updateFakeAckRequestDelay(stopWatch.getTotalTimeMillis());
+    return ackResponse;
   }
 
 }
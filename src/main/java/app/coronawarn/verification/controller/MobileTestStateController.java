@@ -5,6 +5,7 @@
 import app.coronawarn.verification.model.MobileTestResultRequest;
 import app.coronawarn.verification.model.TestResult;
 import app.coronawarn.verification.monitoring.TestRequestMonitor;
+import app.coronawarn.verification.service.AsyncRequestService;
 import app.coronawarn.verification.service.FakeDelayService;
 import app.coronawarn.verification.service.FakeRequestService;
 import app.coronawarn.verification.service.TestResultServerService;
@@ -54,6 +55,9 @@ public class MobileTestStateController {
   @NonNull
   private final TestRequestMonitor testRequestMonitor;
 
+  @NonNull
+  private final AsyncRequestService asyncRequestService;
+
   /**
    * Returns the test status of the COVID-19 test.
    *
@@ -78,32 +82,25 @@ public DeferredResult<ResponseEntity<TestResult>> getTestState(
       .fromMobileTestPollingRequest(mobileTestPollingRequest);
 
     if (mobileTestResultRequest.isFakeRequest()) {
-
       testRequestMonitor.incrementDummyTestRequest();
       return fakeRequestController.getTestState();
-
-    } else {
-
-      StopWatch stopWatch = new StopWatch();
-      stopWatch.start();
-      TestResult testResult = testResultServerService.pollTestResult(mobileTestResultRequest);
-
-      if (testResult.isDummy()) {
-        testRequestMonitor.incrementNonExistingTestRequest();
-      }
-
-      testResult.applyPadding();
-      stopWatch.stop();
-      fakeDelayService.updateFakeTestRequestDelay(stopWatch.getTotalTimeMillis());
-
-      DeferredResult<ResponseEntity<TestResult>> deferredResult = new DeferredResult<>();
-      deferredResult.setResult(ResponseEntity.ok(testResult));
-      return deferredResult;
-
     }
+    return asyncRequestService.execute(TESTRESULT_POLL, () -> getTestState(mobileTestResultRequest));
+  }
 
+  private ResponseEntity<TestResult> getTestState(MobileTestResultRequest mobileTestResultRequest) {
+    StopWatch stopWatch = new StopWatch();
+    stopWatch.start();
+    TestResult testResult = testResultServerService.pollTestResult(mobileTestResultRequest);
 
+    if (testResult.isDummy()) {
+      testRequestMonitor.incrementNonExistingTestRequest();
+    }
 
+    testResult.applyPadding();
+    stopWatch.stop();
+    fakeDelayService.updateFakeTestRequestDelay(stopWatch.getTotalTimeMillis());
+    return ResponseEntity.ok(testResult);
   }
 
 }
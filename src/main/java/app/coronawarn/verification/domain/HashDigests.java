@@ -0,0 +1,53 @@
+/*
+ * Corona-Warn-App / cwa-verification
+ *
+ * (C) 2020, T-Systems International GmbH
+ *
+ * Deutsche Telekom AG and all other contributors /
+ * copyright owners license this file to you under the Apache
+ * License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package app.coronawarn.verification.domain;
+
+import org.apache.commons.codec.DecoderException;
+import org.apache.commons.codec.binary.Hex;
+
+/**
+ * This class converts the hex encoded hashes to the raw digests of the binary hash columns, which need half the
+ * space of the hex strings in the table and in the indexes.
+ */
+public final class HashDigests {
+
+  private HashDigests() {
+  }
+
+  /**
+   * Returns the raw digest of a hex encoded hash.
+   *
+   * @param hash the hex encoded hash
+   * @return the raw digest or null, if the hash is null
+   */
+  public static byte[] fromHex(String hash) {
+    if (hash == null) {
+      return null;
+    }
+    try {
+      return Hex.decodeHex(hash);
+    } catch (DecoderException e) {
+      throw new IllegalArgumentException("The hash is not hex encoded.", e);
+    }
+  }
+}
@@ -31,6 +31,8 @@
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.PrePersist;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
 import javax.persistence.Version;
 import lombok.AllArgsConstructor;
@@ -50,7 +52,8 @@ public class VerificationAppSession implements Serializable {
   private static final long serialVersionUID = 1L;
 
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "app_session_id_seq")
+  @SequenceGenerator(name = "app_session_id_seq", sequenceName = "app_session_id_seq", allocationSize = 50)
   @Column(name = "id")
   private Long id;
 
@@ -73,6 +76,15 @@ public class VerificationAppSession implements Serializable {
   @Column(name = "tele_tan_hash")
   private String teleTanHash;
 
+  @Column(name = "registration_token_hash_bin")
+  private byte[] registrationTokenHashBinary;
+
+  @Column(name = "hashed_guid_bin")
+  private byte[] hashedGuidBinary;
+
+  @Column(name = "tele_tan_hash_bin")
+  private byte[] teleTanHashBinary;
+
   @Column(name = "tan_counter")
   private int tanCounter;
 
@@ -80,6 +92,16 @@ public class VerificationAppSession implements Serializable {
   @Enumerated(EnumType.STRING)
   private AppSessionSourceOfTrust sourceOfTrust;
 
+  /**
+   * Writes the hashes also into the binary hash columns.
+   */
+  @PrePersist
+  public void prePersistBinaryHash() {
+    registrationTokenHashBinary = HashDigests.fromHex(registrationTokenHash);
+    hashedGuidBinary = HashDigests.fromHex(hashedGuid);
+    teleTanHashBinary = HashDigests.fromHex(teleTanHash);
+  }
+
   /**
    * This method increments the tan counter.
    */
@@ -32,6 +32,8 @@
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.PrePersist;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
 import javax.persistence.Version;
 import lombok.AllArgsConstructor;
@@ -51,7 +53,8 @@ public class VerificationTan implements Serializable {
   static final long SERIAL_VERSION_UID = 1L;
   
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "tan_id_seq")
+  @SequenceGenerator(name = "tan_id_seq", sequenceName = "tan_id_seq", allocationSize = 50)
   @Column(name = "id")
   private Long id;
 
@@ -68,6 +71,9 @@ public class VerificationTan implements Serializable {
   @Column(name = "tan_hash")
   private String tanHash;
 
+  @Column(name = "tan_hash_bin")
+  private byte[] tanHashBinary;
+
   @Column(name = "valid_from")
   private LocalDateTime validFrom;
 
@@ -85,6 +91,14 @@ public class VerificationTan implements Serializable {
   @Enumerated(EnumType.STRING)
   private TanType type;
 
+  /**
+   * Writes the hash also into the binary hash column.
+   */
+  @PrePersist
+  public void prePersistBinaryHash() {
+    tanHashBinary = HashDigests.fromHex(tanHash);
+  }
+
   /**
    * Check if the tan can be redeemed by date.
    *
@@ -21,13 +21,18 @@
 
 package app.coronawarn.verification.model;
 
+import app.coronawarn.verification.validator.PollingTokenConstraint;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import io.swagger.v3.oas.annotations.media.Schema;
 import javax.validation.constraints.NotNull;
-import javax.validation.constraints.Pattern;
-import lombok.AllArgsConstructor;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.NonNull;
+import lombok.Setter;
+import lombok.ToString;
 
 /**
  * This class represents the registration Token.
@@ -37,12 +42,48 @@
 )
 @Data
 @NoArgsConstructor
-@AllArgsConstructor
+@PollingTokenConstraint
 public class MobileTestPollingRequest {
 
   @NonNull
   @NotNull
-  @Pattern(regexp = "^[0-9]{15}\\|([12]\\d{3}-(0[1-9]|1[0-2])-(0[1-9]|[12]\\d|3[01]))")
   private String testResultPollingToken;
 
+  @Getter(AccessLevel.NONE)
+  @Setter(AccessLevel.NONE)
+  @EqualsAndHashCode.Exclude
+  @ToString.Exclude
+  private MobileTestResultRequest mobileTestResultRequest;
+
+  /**
+   * Constructor for the MobileTestPollingRequest.
+   *
+   * @param testResultPollingToken the polling token
+   */
+  public MobileTestPollingRequest(@NonNull String testResultPollingToken) {
+    this.testResultPollingToken = testResultPollingToken;
+  }
+
+  /**
+   * Sets the polling token and discards the parsed previous token.
+   *
+   * @param testResultPollingToken the polling token
+   */
+  public void setTestResultPollingToken(@NonNull String testResultPollingToken) {
+    this.testResultPollingToken = testResultPollingToken;
+    this.mobileTestResultRequest = null;
+  }
+
+  /**
+   * Returns the parsed polling token. The token is parsed once, by the validation or the first call.
+   *
+   * @return the test of the polling token or null, if the token is not valid
+   */
+  @JsonIgnore
+  public MobileTestResultRequest getMobileTestResultRequest() {
+    if (mobileTestResultRequest == null && testResultPollingToken != null) {
+      mobileTestResultRequest = MobileTestResultRequest.parsePollingToken(testResultPollingToken);
+    }
+    return mobileTestResultRequest;
+  }
 }
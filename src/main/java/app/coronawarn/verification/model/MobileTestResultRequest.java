@@ -21,14 +21,18 @@
 
 package app.coronawarn.verification.model;
 
+import app.coronawarn.verification.exception.VerificationServerException;
 import io.swagger.v3.oas.annotations.media.Schema;
 import java.time.LocalDate;
+import java.time.Month;
+import java.time.Year;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Pattern;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.experimental.Accessors;
+import org.springframework.http.HttpStatus;
 
 /**
  * Request model of the test result.
@@ -43,6 +47,8 @@
 public class MobileTestResultRequest {
 
   public static final String FAKE_TEST_ID = "000000000000000";
+  private static final int MOBILE_TEST_ID_LENGTH = 15;
+  private static final int POLLING_TOKEN_LENGTH = MOBILE_TEST_ID_LENGTH + 11;
 
   @NotNull
   @Pattern(regexp = "^[0-9]{15}")
@@ -60,14 +66,51 @@ public class MobileTestResultRequest {
   public static MobileTestResultRequest fromMobileTestPollingRequest(
     MobileTestPollingRequest mobileTestPollingRequest) {
 
-    String token = mobileTestPollingRequest.getTestResultPollingToken();
-    return new MobileTestResultRequest(
-      token.split("\\|")[0],
-      LocalDate.parse(token.split("\\|")[1])
-    );
+    MobileTestResultRequest request = mobileTestPollingRequest.getMobileTestResultRequest();
+    if (request == null) {
+      throw new VerificationServerException(HttpStatus.BAD_REQUEST, "The polling token is not valid");
+    }
+    return request;
 
   }
 
+  /**
+   * Parses and validates a polling token of the form {@code <15 digits>|yyyy-MM-dd} in a single pass.
+   *
+   * @param token the polling token
+   * @return the request or null, if the token is not valid
+   */
+  public static MobileTestResultRequest parsePollingToken(String token) {
+    if (token.length() != POLLING_TOKEN_LENGTH || token.charAt(MOBILE_TEST_ID_LENGTH) != '|'
+      || token.charAt(MOBILE_TEST_ID_LENGTH + 5) != '-' || token.charAt(MOBILE_TEST_ID_LENGTH + 8) != '-'
+      || parseDigits(token, 0, MOBILE_TEST_ID_LENGTH) < 0) {
+      return null;
+    }
+    int year = parseDigits(token, MOBILE_TEST_ID_LENGTH + 1, MOBILE_TEST_ID_LENGTH + 5);
+    int month = parseDigits(token, MOBILE_TEST_ID_LENGTH + 6, MOBILE_TEST_ID_LENGTH + 8);
+    int day = parseDigits(token, MOBILE_TEST_ID_LENGTH + 9, POLLING_TOKEN_LENGTH);
+    if (year < 1000 || year > 2999 || month < 1 || month > 12
+      || day < 1 || day > Month.of(month).length(Year.isLeap(year))) {
+      return null;
+    }
+    return new MobileTestResultRequest(token.substring(0, MOBILE_TEST_ID_LENGTH), LocalDate.of(year, month, day));
+  }
+
+  /**
+   * Returns the value of the decimal digits between from and to, which is at most 15 digits, or -1, if there is
+   * another character.
+   */
+  private static int parseDigits(String token, int from, int to) {
+    long value = 0;
+    for (int i = from; i < to; i++) {
+      char c = token.charAt(i);
+      if (c < '0' || c > '9') {
+        return -1;
+      }
+      value = value * 10 + (c - '0');
+    }
+    return (int) Math.min(value, Integer.MAX_VALUE);
+  }
 
   public boolean isFakeRequest() {
     return FAKE_TEST_ID.equals(getMobileTestId());
@@ -0,0 +1,49 @@
+/*
+ * Corona-Warn-App / cwa-verification
+ *
+ * (C) 2020, T-Systems International GmbH
+ *
+ * Deutsche Telekom AG and all other contributors /
+ * copyright owners license this file to you under the Apache
+ * License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package app.coronawarn.verification.model;
+
+import app.coronawarn.verification.domain.VerificationTan;
+import java.util.Optional;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * This class holds the outcome of a teleTAN verification: the teleTAN hash and the teleTAN entity, so they can be
+ * used after the verification without hashing and loading the teleTAN again.
+ */
+@Getter
+@RequiredArgsConstructor
+public class TeleTanVerification {
+
+  private final String teleTan;
+  /**
+   * The teleTAN hash, null if the teleTAN violates the syntax constraints.
+   */
+  private final String teleTanHash;
+  private final VerificationTan entity;
+  private final boolean verified;
+
+  public Optional<VerificationTan> getEntity() {
+    return Optional.ofNullable(entity);
+  }
+}
@@ -104,6 +104,19 @@ public static TestResult dummyTestResult() {
 
   }
 
+  /**
+   * Create a copy of this test result, so it can be handed out to several requests.
+   *
+   * @return the copy.
+   */
+  public TestResult copy() {
+    return new TestResult(result, resultChannel, responsePadding)
+      .setDatePatientInfectious(datePatientInfectious)
+      .setDateSampleCollected(dateSampleCollected)
+      .setDateTestPerformed(dateTestPerformed)
+      .setDateTestCommunicated(dateTestCommunicated);
+  }
+
   public void applyPadding() {
     setResponsePadding(RandomStringUtils.randomAlphanumeric(RESPONSE_PADDING_LENGTH));
   }
@@ -25,6 +25,9 @@
 import java.time.LocalDateTime;
 import java.util.Optional;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
 
 /**
  * This class represents the AppSession repository.
@@ -39,6 +42,15 @@ public interface VerificationAppSessionRepository extends JpaRepository<Verifica
    */
   Optional<VerificationAppSession> findByRegistrationTokenHash(String registrationTokenHash);
 
+  /**
+   * This method looks in the Database for an Appsession with the given raw registration token digest in the binary
+   * hash column.
+   *
+   * @param registrationTokenDigest raw digest to search for
+   * @return Optional VerificationAppSession the optional Appsession
+   */
+  Optional<VerificationAppSession> findByRegistrationTokenHashBinary(byte[] registrationTokenDigest);
+
   /**
    * This method looks in the Database for an Appsession with the given hashedGuid.
    *
@@ -46,6 +58,15 @@ public interface VerificationAppSessionRepository extends JpaRepository<Verifica
    * @return Optional VerificationAppSession the optional Appsession
    */
   Optional<VerificationAppSession> findByHashedGuid(String hashedGuid);
+
+  /**
+   * This method looks in the Database for an Appsession with the given raw hashed guid digest in the binary hash
+   * column.
+   *
+   * @param hashedGuidDigest raw digest to search for
+   * @return Optional VerificationAppSession the optional Appsession
+   */
+  Optional<VerificationAppSession> findByHashedGuidBinary(byte[] hashedGuidDigest);
   
   /**
    * This method looks in the Database for an Appsession with the given teleTanHash.
@@ -54,11 +75,25 @@ public interface VerificationAppSessionRepository extends JpaRepository<Verifica
    * @return Optional VerificationAppSession the optional Appsession
    */
   Optional<VerificationAppSession> findByTeleTanHash(String teleTanHash);
+
+  /**
+   * This method looks in the Database for an Appsession with the given raw teleTan digest in the binary hash column.
+   *
+   * @param teleTanDigest raw digest to search for
+   * @return Optional VerificationAppSession the optional Appsession
+   */
+  Optional<VerificationAppSession> findByTeleTanHashBinary(byte[] teleTanDigest);
   
   /**
-   * This method looks in the Database for Appsessions that are older than the before value and deletes them.
+   * This method purges a chunk of entities from the database that are older than before value.
    *
-   * @param before the Date to delete by
+   * @param before LocalDateTime to delete older entities
+   * @param chunkSize the maximum number of entities to delete
+   * @return the number of deleted entities
    */
-  void deleteByCreatedAtBefore(LocalDateTime before);
+  @Modifying
+  @Transactional
+  @Query(value = "DELETE FROM app_session WHERE id IN "
+    + "(SELECT id FROM app_session WHERE created_at < ?1 LIMIT ?2)", nativeQuery = true)
+  int deleteChunkByCreatedAtBefore(LocalDateTime before, int chunkSize);
 }
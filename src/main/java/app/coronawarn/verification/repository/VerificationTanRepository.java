@@ -24,8 +24,15 @@
 import app.coronawarn.verification.domain.VerificationTan;
 import app.coronawarn.verification.model.TanType;
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import javax.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
 
 /**
  * This class represents the Tan repository.
@@ -49,11 +56,81 @@ public interface VerificationTanRepository extends JpaRepository<VerificationTan
   Optional<VerificationTan> findByTanHash(String tanHash);
 
   /**
-   * This method purges Entities from the database that are older than before value.
+   * This method looks in the Database for an if a VerificationTan exists for the raw digest in the binary hash column.
+   *
+   * @param tanDigest raw digest to search for
+   * @return Optional VerificationTan
+   */
+  Optional<VerificationTan> findByTanHashBinary(byte[] tanDigest);
+
+  /**
+   * This method looks in the Database for the VerificationTans of the tan hashes and locks them for the redemption.
+   *
+   * @param tanHashes hashes to search for
+   * @return the VerificationTans which exist for the tan hashes
+   */
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  List<VerificationTan> findByTanHashIn(Collection<String> tanHashes);
+
+  /**
+   * This method looks in the Database for the VerificationTans of the raw digests in the binary hash column and locks
+   * them for the redemption.
+   *
+   * @param tanDigests raw digests to search for
+   * @return the VerificationTans which exist for the raw digests
+   */
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  List<VerificationTan> findByTanHashBinaryIn(Collection<byte[]> tanDigests);
+
+  /**
+   * This method deletes the VerificationTans with the given ids in a single statement.
+   *
+   * @param ids the ids of the entities to delete
+   * @return the number of deleted entities
+   */
+  @Modifying
+  @Query("DELETE FROM VerificationTan t WHERE t.id IN ?1")
+  int deleteByIdIn(Collection<Long> ids);
+
+  /**
+   * This method redeems a VerificationTan by deleting it in a single statement, if it can be redeemed at the
+   * reference date. Concurrent redemptions of the same tan hash cannot both succeed.
+   *
+   * @param tanHash hash of the tan to redeem
+   * @param reference the date which has to be in between the valid from and valid until range
+   * @return the number of redeemed entities
+   */
+  @Modifying
+  @Transactional
+  @Query("DELETE FROM VerificationTan t WHERE t.tanHash = ?1"
+    + " AND t.validFrom < ?2 AND t.validUntil > ?2 AND t.redeemed = false")
+  int deleteRedeemableByTanHash(String tanHash, LocalDateTime reference);
+
+  /**
+   * This method redeems a VerificationTan like {@link #deleteRedeemableByTanHash(String, LocalDateTime)}, but looks
+   * up the raw digest in the binary hash column.
+   *
+   * @param tanDigest raw digest of the tan to redeem
+   * @param reference the date which has to be in between the valid from and valid until range
+   * @return the number of redeemed entities
+   */
+  @Modifying
+  @Transactional
+  @Query("DELETE FROM VerificationTan t WHERE t.tanHashBinary = ?1"
+    + " AND t.validFrom < ?2 AND t.validUntil > ?2 AND t.redeemed = false")
+  int deleteRedeemableByTanHashBinary(byte[] tanDigest, LocalDateTime reference);
+
+  /**
+   * This method purges a chunk of entities from the database that are older than before value.
    *
    * @param before LocalDateTime to delete older entities
+   * @param chunkSize the maximum number of entities to delete
+   * @return the number of deleted entities
    */
-  void deleteByCreatedAtBefore(LocalDateTime before);
+  @Modifying
+  @Transactional
+  @Query(value = "DELETE FROM tan WHERE id IN (SELECT id FROM tan WHERE created_at < ?1 LIMIT ?2)", nativeQuery = true)
+  int deleteChunkByCreatedAtBefore(LocalDateTime before, int chunkSize);
 
   /**
    * This method counts entities which are newer then after value.
@@ -64,4 +141,14 @@ public interface VerificationTanRepository extends JpaRepository<VerificationTan
    */
   int countByCreatedAtIsAfterAndTypeIs(LocalDateTime after, TanType tanType);
 
+  /**
+   * This method looks in the Database for the creation dates of entities which are newer then after value.
+   *
+   * @param after - LocalDateTime to find entities
+   * @param tanType - TanType of the tans that should be found
+   * @return the creation dates of the relevant entities
+   */
+  @Query("SELECT t.createdAt FROM VerificationTan t WHERE t.createdAt > ?1 AND t.type = ?2")
+  List<LocalDateTime> findCreatedAtByCreatedAtIsAfterAndTypeIs(LocalDateTime after, TanType tanType);
+
 }
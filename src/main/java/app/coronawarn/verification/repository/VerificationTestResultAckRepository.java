@@ -0,0 +1,75 @@
+/*
+ * Corona-Warn-App / cwa-verification
+ *
+ * (C) 2020, T-Systems International GmbH
+ *
+ * Deutsche Telekom AG and all other contributors /
+ * copyright owners license this file to you under the Apache
+ * License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package app.coronawarn.verification.repository;
+
+import app.coronawarn.verification.domain.VerificationTestResultAck;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * This class represents the TestResultAck repository.
+ */
+public interface VerificationTestResultAckRepository extends JpaRepository<VerificationTestResultAck, Long> {
+
+  /**
+   * This method looks in the Database for the acks which are due to be forwarded, the longest due first.
+   *
+   * @param now the current time
+   * @param pageable the maximum number of acks
+   * @return the due acks
+   */
+  List<VerificationTestResultAck> findByNextAttemptAtLessThanEqualOrderByNextAttemptAt(LocalDateTime now,
+                                                                                       Pageable pageable);
+
+  /**
+   * This method claims an ack for a forward attempt by moving its next attempt, if no other instance has claimed
+   * it in the meantime.
+   *
+   * @param id the id of the ack
+   * @param nextAttemptAt the next attempt the ack was loaded with
+   * @param attempts the number of attempts including this one
+   * @param retryAt the next attempt if this one fails
+   * @return 1 if the ack was claimed, 0 otherwise
+   */
+  @Modifying
+  @Transactional
+  @Query("UPDATE VerificationTestResultAck a SET a.attempts = ?3, a.nextAttemptAt = ?4 "
+    + "WHERE a.id = ?1 AND a.nextAttemptAt = ?2")
+  int claim(Long id, LocalDateTime nextAttemptAt, int attempts, LocalDateTime retryAt);
+
+  /**
+   * This method deletes a forwarded ack, if it was not deleted in the meantime.
+   *
+   * @param id the id of the ack
+   * @return the number of deleted acks
+   */
+  @Modifying
+  @Transactional
+  @Query("DELETE FROM VerificationTestResultAck a WHERE a.id = ?1")
+  int deleteAck(Long id);
+}
@@ -21,6 +21,8 @@
 
 package app.coronawarn.verification.service;
 
+import app.coronawarn.verification.config.VerificationApplicationConfig;
+import app.coronawarn.verification.domain.HashDigests;
 import app.coronawarn.verification.domain.VerificationAppSession;
 import app.coronawarn.verification.model.AppSessionSourceOfTrust;
 import app.coronawarn.verification.model.RegistrationToken;
@@ -28,10 +30,12 @@
 import java.time.LocalDateTime;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.BooleanSupplier;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.RandomStringUtils;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
@@ -57,6 +61,9 @@ public class AppSessionService {
   @NonNull
   private final HashingService hashingService;
 
+  @NonNull
+  private final VerificationApplicationConfig verificationApplicationConfig;
+
   /**
    * Creates an AppSession-Entity.
    *
@@ -83,43 +90,78 @@ private String generateRegistrationToken() {
    * @return an {@link ResponseEntity}
    */
   public ResponseEntity<RegistrationToken> generateRegistrationTokenByGuid(String hashedGuid) {
-    if (checkRegistrationTokenAlreadyExistsForGuid(hashedGuid)) {
+    log.info("Start generating a new registration token for the given hashed guid.");
+    String registrationToken = generateRegistrationToken();
+    VerificationAppSession appSession = generateAppSession(registrationToken);
+    appSession.setHashedGuid(hashedGuid);
+    appSession.setSourceOfTrust(AppSessionSourceOfTrust.HASHED_GUID);
+    if (!insertAppSession(appSession, () -> existsByHashedGuid(hashedGuid))) {
       log.warn("The registration token already exists for the hashed guid.");
       return ResponseEntity.badRequest().build();
-    } else {
-      log.info("Start generating a new registration token for the given hashed guid.");
-      String registrationToken = generateRegistrationToken();
-      VerificationAppSession appSession = generateAppSession(registrationToken);
-      appSession.setHashedGuid(hashedGuid);
-      appSession.setSourceOfTrust(AppSessionSourceOfTrust.HASHED_GUID);
-      saveAppSession(appSession);
-      log.info("Returning the successfully created registration token.");
-      return ResponseEntity.status(HttpStatus.CREATED).body(new RegistrationToken(registrationToken,
-        RandomStringUtils.randomAlphanumeric(TOKEN_PADDING_LENGTH)));
     }
+    log.info("Returning the successfully created registration token.");
+    return ResponseEntity.status(HttpStatus.CREATED).body(new RegistrationToken(registrationToken,
+      RandomStringUtils.randomAlphanumeric(TOKEN_PADDING_LENGTH)));
   }
 
   /**
    * This method generates a registration Token by a TeleTAN.
    *
-   * @param teleTan the TeleTan
+   * @param teleTanHash the hash of the TeleTan
    * @return an {@link ResponseEntity}
    */
-  public ResponseEntity<RegistrationToken> generateRegistrationTokenByTeleTan(String teleTan) {
-    if (checkRegistrationTokenAlreadyExistForTeleTan(teleTan)) {
+  public ResponseEntity<RegistrationToken> generateRegistrationTokenByTeleTanHash(String teleTanHash) {
+    log.info("Start generating a new registration token for the given TeleTAN.");
+    String registrationToken = generateRegistrationToken();
+    VerificationAppSession appSession = generateAppSession(registrationToken);
+    appSession.setTeleTanHash(teleTanHash);
+    appSession.setSourceOfTrust(AppSessionSourceOfTrust.TELETAN);
+    if (!insertAppSession(appSession, () -> existsByTeleTanHash(teleTanHash))) {
       log.warn("The registration token already exists for this TeleTAN.");
       return ResponseEntity.badRequest().build();
-    } else {
-      log.info("Start generating a new registration token for the given TeleTAN.");
-      String registrationToken = generateRegistrationToken();
-      VerificationAppSession appSession = generateAppSession(registrationToken);
-      appSession.setTeleTanHash(hashingService.hash(teleTan));
-      appSession.setSourceOfTrust(AppSessionSourceOfTrust.TELETAN);
+    }
+    log.info("Returning the successfully created registration token.");
+    return ResponseEntity.status(HttpStatus.CREATED).body(new RegistrationToken(registrationToken,
+      RandomStringUtils.randomAlphanumeric(TOKEN_PADDING_LENGTH)));
+  }
+
+  /**
+   * Inserts a new {@link VerificationAppSession}. The unique indexes on the hashed guid and the teleTAN hash reject
+   * a second app session for the same key, so no lookup is needed before the insert. The partitioned tables cannot
+   * have these indexes, because a unique index of a partitioned table has to include the partition key, so the
+   * existing app sessions are looked up before the insert in that case.
+   *
+   * @param appSession the new verification app session entity
+   * @param exists     looks up whether an app session already exists for the key
+   * @return false if an app session already exists for the key
+   */
+  private boolean insertAppSession(VerificationAppSession appSession, BooleanSupplier exists) {
+    if (verificationApplicationConfig.getEntities().getCleanup().isPartitioned() && exists.getAsBoolean()) {
+      return false;
+    }
+    try {
       saveAppSession(appSession);
-      log.info("Returning the successfully created registration token.");
-      return ResponseEntity.status(HttpStatus.CREATED).body(new RegistrationToken(registrationToken,
-        RandomStringUtils.randomAlphanumeric(TOKEN_PADDING_LENGTH)));
+      return true;
+    } catch (DataIntegrityViolationException e) {
+      if (!UniqueViolations.isUniqueViolation(e)) {
+        throw e;
+      }
+      return false;
+    }
+  }
+
+  private boolean existsByHashedGuid(String hashedGuid) {
+    if (verificationApplicationConfig.getEntities().isBinaryHashes()) {
+      return appSessionRepository.findByHashedGuidBinary(HashDigests.fromHex(hashedGuid)).isPresent();
+    }
+    return appSessionRepository.findByHashedGuid(hashedGuid).isPresent();
+  }
+
+  private boolean existsByTeleTanHash(String teleTanHash) {
+    if (verificationApplicationConfig.getEntities().isBinaryHashes()) {
+      return appSessionRepository.findByTeleTanHashBinary(HashDigests.fromHex(teleTanHash)).isPresent();
     }
+    return appSessionRepository.findByTeleTanHash(teleTanHash).isPresent();
   }
 
   /**
@@ -140,29 +182,10 @@ public void saveAppSession(VerificationAppSession appSession) {
    */
   public Optional<VerificationAppSession> getAppSessionByToken(String registrationToken) {
     log.info("Start getAppSessionByToken.");
+    if (verificationApplicationConfig.getEntities().isBinaryHashes()) {
+      return appSessionRepository.findByRegistrationTokenHashBinary(hashingService.digest(registrationToken));
+    }
     return appSessionRepository.findByRegistrationTokenHash(hashingService.hash(registrationToken));
   }
 
-  /**
-   * Check for existing hashed GUID Token in the {@link VerificationAppSessionRepository}.
-   *
-   * @param hashedGuid the hashed guid
-   * @return flag for existing guid
-   */
-  public boolean checkRegistrationTokenAlreadyExistsForGuid(String hashedGuid) {
-    log.info("Start checkRegistrationTokenAlreadyExistsForGuid.");
-    return appSessionRepository.findByHashedGuid(hashedGuid).isPresent();
-  }
-
-  /**
-   * Check for existing hashed TeleTAN in the {@link VerificationAppSessionRepository}.
-   *
-   * @param teleTan the teleTAN
-   * @return flag for existing teleTAN
-   */
-  public boolean checkRegistrationTokenAlreadyExistForTeleTan(String teleTan) {
-    log.info("Start checkTeleTanAlreadyExistForTeleTan.");
-    return appSessionRepository.findByTeleTanHash(hashingService.hash(teleTan)).isPresent();
-  }
-
 }
@@ -0,0 +1,192 @@
+/*
+ * Corona-Warn-App / cwa-verification
+ *
+ * (C) 2020, T-Systems International GmbH
+ *
+ * Deutsche Telekom AG and all other contributors /
+ * copyright owners license this file to you under the Apache
+ * License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package app.coronawarn.verification.service;
+
+import app.coronawarn.verification.config.VerificationApplicationConfig;
+import app.coronawarn.verification.exception.VerificationServerException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import javax.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.async.DeferredResult;
+
+/**
+ * This Service runs the blocking work of the external endpoints on a bounded executor, so a slow test result server
+ * or database does not block the container threads. Each endpoint has its own concurrency limit. If the limit or the
+ * queue is exhausted, the request is answered with 503, and if the work does not finish in time with 504.
+ */
+@Slf4j
+@Service
+public class AsyncRequestService {
+
+  private static final String QUEUE_SIZE_GAUGE_NAME = "verification_async.queue_size";
+  private static final String ACTIVE_GAUGE_NAME = "verification_async.active";
+  private static final String IN_FLIGHT_GAUGE_NAME = "verification_async.in_flight";
+  private static final String REJECTED_COUNTER_NAME = "verification_async.rejected";
+  private static final String TIMEOUT_COUNTER_NAME = "verification_async.timeouts";
+
+  private final VerificationApplicationConfig.Request.Async config;
+  private final MeterRegistry meterRegistry;
+  private final ThreadPoolExecutor executor;
+  private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+  private final AtomicInteger threadCount = new AtomicInteger();
+
+  /**
+   * Constructor for the AsyncRequestService that also registers the executor metrics.
+   *
+   * @param verificationApplicationConfig the {@link VerificationApplicationConfig} with the async configuration
+   * @param meterRegistry the {@link MeterRegistry} for the executor metrics
+   */
+  public AsyncRequestService(VerificationApplicationConfig verificationApplicationConfig,
+                             MeterRegistry meterRegistry) {
+    this.config = verificationApplicationConfig.getRequest().getAsync();
+    this.meterRegistry = meterRegistry;
+    this.executor = new ThreadPoolExecutor(config.getThreads(), config.getThreads(), 60, TimeUnit.SECONDS,
+      new ArrayBlockingQueue<>(config.getQueueCapacity()), this::newThread);
+    this.executor.allowCoreThreadTimeOut(true);
+    Gauge.builder(QUEUE_SIZE_GAUGE_NAME, executor, e -> e.getQueue().size())
+      .description("Requests waiting for an async request thread.")
+      .register(meterRegistry);
+    Gauge.builder(ACTIVE_GAUGE_NAME, executor, ThreadPoolExecutor::getActiveCount)
+      .description("Requests processed by an async request thread.")
+      .register(meterRegistry);
+  }
+
+  /**
+   * Stops the executor.
+   */
+  @PreDestroy
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  /**
+   * Executes the work of an endpoint and returns its result as {@link DeferredResult}. If the async mode is disabled,
+   * the work is executed on the calling thread.
+   *
+   * @param endpoint the name of the endpoint, which selects the concurrency limit
+   * @param work the blocking work of the endpoint
+   * @param <T> the type of the response body
+   * @return the deferred response of the work
+   */
+  public <T> DeferredResult<ResponseEntity<T>> execute(String endpoint, Supplier<ResponseEntity<T>> work) {
+    if (!config.isEnabled()) {
+      DeferredResult<ResponseEntity<T>> deferredResult = new DeferredResult<>();
+      deferredResult.setResult(work.get());
+      return deferredResult;
+    }
+    Endpoint limit = endpoints.computeIfAbsent(endpoint, this::createEndpoint);
+    DeferredResult<ResponseEntity<T>> deferredResult = new DeferredResult<>(config.getTimeout());
+    if (!limit.permits.tryAcquire()) {
+      limit.rejected.increment();
+      log.warn("The concurrency limit of the endpoint {} is exhausted.", endpoint);
+      deferredResult.setErrorResult(serviceUnavailable());
+      return deferredResult;
+    }
+    AtomicBoolean released = new AtomicBoolean();
+    Runnable releasePermit = () -> {
+      if (released.compareAndSet(false, true)) {
+        limit.permits.release();
+      }
+    };
+    try {
+      Future<?> future = executor.submit(() -> {
+        try {
+          deferredResult.setResult(work.get());
+        } catch (RuntimeException e) {
+          deferredResult.setErrorResult(e);
+        } finally {
+          releasePermit.run();
+        }
+      });
+      // a cancelled task, which is still queued, never runs, so the permit is released by the callbacks as well
+      deferredResult.onTimeout(() -> {
+        future.cancel(true);
+        releasePermit.run();
+        limit.timeouts.increment();
+        log.warn("The request to the endpoint {} timed out.", endpoint);
+        deferredResult.setErrorResult(
+          new VerificationServerException(HttpStatus.GATEWAY_TIMEOUT, "The request timed out"));
+      });
+      deferredResult.onCompletion(releasePermit);
+    } catch (RejectedExecutionException e) {
+      releasePermit.run();
+      limit.rejected.increment();
+      log.warn("The async request queue is full.");
+      deferredResult.setErrorResult(serviceUnavailable());
+    }
+    return deferredResult;
+  }
+
+  private Thread newThread(Runnable runnable) {
+    Thread thread = new Thread(runnable, "async-request-" + threadCount.incrementAndGet());
+    thread.setDaemon(true);
+    return thread;
+  }
+
+  private Endpoint createEndpoint(String endpoint) {
+    int permits = config.getEndpointLimits().getOrDefault(endpoint, config.getEndpointLimit());
+    Endpoint limit = new Endpoint(new Semaphore(permits),
+      Counter.builder(REJECTED_COUNTER_NAME)
+        .tag("endpoint", endpoint)
+        .description("Requests rejected due to an exhausted concurrency limit or queue.")
+        .register(meterRegistry),
+      Counter.builder(TIMEOUT_COUNTER_NAME)
+        .tag("endpoint", endpoint)
+        .description("Requests which timed out.")
+        .register(meterRegistry));
+    Gauge.builder(IN_FLIGHT_GAUGE_NAME, limit.permits, semaphore -> permits - semaphore.availablePermits())
+      .tag("endpoint", endpoint)
+      .description("Requests of the endpoint which are queued or processed.")
+      .register(meterRegistry);
+    return limit;
+  }
+
+  private static VerificationServerException serviceUnavailable() {
+    return new VerificationServerException(HttpStatus.SERVICE_UNAVAILABLE, "The server is busy");
+  }
+
+  @RequiredArgsConstructor
+  private static class Endpoint {
+
+    private final Semaphore permits;
+    private final Counter rejected;
+    private final Counter timeouts;
+  }
+}
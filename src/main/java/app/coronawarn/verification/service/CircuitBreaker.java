@@ -0,0 +1,114 @@
+/*
+ * Corona-Warn-App / cwa-verification
+ *
+ * (C) 2020, T-Systems International GmbH
+ *
+ * Deutsche Telekom AG and all other contributors /
+ * copyright owners license this file to you under the Apache
+ * License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package app.coronawarn.verification.service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+
+/**
+ * This class is a circuit breaker for the calls to a remote server. It opens after a number of consecutive failed
+ * calls and rejects all calls while it is open. After the open duration it lets a single probe call pass: if the
+ * probe succeeds, the breaker closes, otherwise it opens again.
+ */
+public class CircuitBreaker {
+
+  /**
+   * The states of the circuit breaker, the ordinal is exported as metric.
+   */
+  public enum State {
+    CLOSED, OPEN, HALF_OPEN
+  }
+
+  private final int failureThreshold;
+  private final long openNanos;
+  private final LongSupplier nanoClock;
+  private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+  private final AtomicInteger consecutiveFailures = new AtomicInteger();
+  private final AtomicLong openedAt = new AtomicLong();
+  private final AtomicBoolean probing = new AtomicBoolean();
+
+  /**
+   * Constructor for the CircuitBreaker.
+   *
+   * @param failureThreshold the number of consecutive failures which open the breaker
+   * @param openMillis the number of milliseconds the breaker stays open before a probe call
+   * @param nanoClock the monotonic clock in nanoseconds
+   */
+  public CircuitBreaker(int failureThreshold, long openMillis, LongSupplier nanoClock) {
+    this.failureThreshold = Math.max(1, failureThreshold);
+    this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMillis);
+    this.nanoClock = nanoClock;
+  }
+
+  /**
+   * Returns whether a call may pass. A permitted call must be reported by {@link #onSuccess()} or
+   * {@link #onFailure()}.
+   *
+   * @return true, if the call may pass
+   */
+  public boolean tryAcquirePermission() {
+    switch (state.get()) {
+      case CLOSED:
+        return true;
+      case OPEN:
+        if (nanoClock.getAsLong() - openedAt.get() < openNanos || !state.compareAndSet(State.OPEN, State.HALF_OPEN)) {
+          return false;
+        }
+        probing.set(true);
+        return true;
+      default:
+        return probing.compareAndSet(false, true);
+    }
+  }
+
+  /**
+   * Reports a successful call, which closes a half open breaker.
+   */
+  public void onSuccess() {
+    consecutiveFailures.set(0);
+    if (state.get() == State.HALF_OPEN) {
+      state.set(State.CLOSED);
+      probing.set(false);
+    }
+  }
+
+  /**
+   * Reports a failed call, which opens a half open breaker or a closed breaker after too many failures.
+   */
+  public void onFailure() {
+    if (state.get() == State.HALF_OPEN || consecutiveFailures.incrementAndGet() >= failureThreshold) {
+      openedAt.set(nanoClock.getAsLong());
+      state.set(State.OPEN);
+      probing.set(false);
+      consecutiveFailures.set(0);
+    }
+  }
+
+  public State getState() {
+    return state.get();
+  }
+}
@@ -21,28 +21,82 @@
 
 package app.coronawarn.verification.service;
 
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
 import app.coronawarn.verification.config.VerificationApplicationConfig;
 import app.coronawarn.verification.repository.VerificationAppSessionRepository;
 import app.coronawarn.verification.repository.VerificationTanRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import java.time.LocalDateTime;
 import java.time.Period;
-import javax.transaction.Transactional;
-import lombok.RequiredArgsConstructor;
+import java.util.function.BiFunction;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 /**
  * A Service to delete entities that are older than configured days.
+ * The entities are deleted in chunks, each in its own transaction, so a cleanup of many entities neither loads them
+ * into memory nor holds locks against the live traffic for a long time. If the tables are partitioned, the expired
+ * daily partitions are dropped. The partition of the entities from before the partitioning and the default partition
+ * are no daily partitions, so their expired entities are still deleted in chunks, which only scans the partitions
+ * with expired entities.
  */
 @Slf4j
-@RequiredArgsConstructor
 @Component
 public class EntitiesCleanupService {
 
+  private static final String DELETED_ROWS_COUNTER_NAME = "verification_cleanup.deleted_rows";
+  private static final String CHUNK_DURATION_TIMER_NAME = "verification_cleanup.chunk_duration";
+  private static final String DURATION_TIMER_NAME = "verification_cleanup.duration";
+  private static final String TABLE_TAG = "table";
+
   private final VerificationApplicationConfig applicationConfig;
   private final VerificationAppSessionRepository appSessionRepository;
   private final VerificationTanRepository tanRepository;
+  private final EntitiesPartitionService partitionService;
+
+  private final Counter deletedAppSessions;
+  private final Counter deletedTans;
+  private final Timer chunkDuration;
+  private final Timer duration;
+
+  /**
+   * Constructor for the EntitiesCleanupService that also registers the cleanup metrics.
+   *
+   * @param applicationConfig the {@link VerificationApplicationConfig} with the cleanup configuration
+   * @param appSessionRepository the {@link VerificationAppSessionRepository} to clean up
+   * @param tanRepository the {@link VerificationTanRepository} to clean up
+   * @param partitionService the {@link EntitiesPartitionService} to drop expired partitions
+   * @param meterRegistry the {@link MeterRegistry} for the cleanup metrics
+   */
+  public EntitiesCleanupService(
+    VerificationApplicationConfig applicationConfig,
+    VerificationAppSessionRepository appSessionRepository,
+    VerificationTanRepository tanRepository,
+    EntitiesPartitionService partitionService,
+    MeterRegistry meterRegistry) {
+    this.applicationConfig = applicationConfig;
+    this.appSessionRepository = appSessionRepository;
+    this.tanRepository = tanRepository;
+    this.partitionService = partitionService;
+    this.deletedAppSessions = Counter.builder(DELETED_ROWS_COUNTER_NAME)
+      .tag(TABLE_TAG, "app_session")
+      .description("Rows deleted by the entities cleanup.")
+      .register(meterRegistry);
+    this.deletedTans = Counter.builder(DELETED_ROWS_COUNTER_NAME)
+      .tag(TABLE_TAG, "tan")
+      .description("Rows deleted by the entities cleanup.")
+      .register(meterRegistry);
+    this.chunkDuration = Timer.builder(CHUNK_DURATION_TIMER_NAME)
+      .description("Duration of a single chunk of the entities cleanup.")
+      .register(meterRegistry);
+    this.duration = Timer.builder(DURATION_TIMER_NAME)
+      .description("Duration of the entities cleanup.")
+      .register(meterRegistry);
+  }
 
   /**
    * All entities that are older than configured days get deleted.
@@ -50,12 +104,45 @@ public class EntitiesCleanupService {
   @Scheduled(
     fixedDelayString = "${entities.cleanup.rate}"
   )
-  @Transactional
   public void cleanup() {
     log.info("cleanup execution");
-    appSessionRepository.deleteByCreatedAtBefore(LocalDateTime.now()
-      .minus(Period.ofDays(applicationConfig.getEntities().getCleanup().getDays())));
-    tanRepository.deleteByCreatedAtBefore(LocalDateTime.now()
-      .minus(Period.ofDays(applicationConfig.getEntities().getCleanup().getDays())));
+    LocalDateTime before = LocalDateTime.now()
+      .minus(Period.ofDays(applicationConfig.getEntities().getCleanup().getDays()));
+    duration.record(() -> {
+      if (partitionService.isPartitioned()) {
+        partitionService.dropPartitionsBefore(before);
+      }
+      if (deleteInChunks(appSessionRepository::deleteChunkByCreatedAtBefore, before, deletedAppSessions)) {
+        deleteInChunks(tanRepository::deleteChunkByCreatedAtBefore, before, deletedTans);
+      }
+    });
+  }
+
+  /**
+   * Deletes the entities in chunks until a chunk is not full anymore.
+   *
+   * @return false if the cleanup was interrupted
+   */
+  private boolean deleteInChunks(BiFunction<LocalDateTime, Integer, Integer> deleteChunk, LocalDateTime before,
+                                 Counter deleted) {
+    int chunkSize = applicationConfig.getEntities().getCleanup().getChunkSize();
+    long chunkPause = applicationConfig.getEntities().getCleanup().getChunkPause();
+    int deletedInChunk;
+    do {
+      long start = System.nanoTime();
+      deletedInChunk = deleteChunk.apply(before, chunkSize);
+      chunkDuration.record(System.nanoTime() - start, NANOSECONDS);
+      deleted.increment(deletedInChunk);
+      if (deletedInChunk >= chunkSize && chunkPause > 0) {
+        try {
+          Thread.sleep(chunkPause);
+        } catch (InterruptedException e) {
+          log.warn("The cleanup execution was interrupted.");
+          Thread.currentThread().interrupt();
+          return false;
+        }
+      }
+    } while (deletedInChunk >= chunkSize);
+    return true;
   }
 }
@@ -0,0 +1,174 @@
+/*
+ * Corona-Warn-App / cwa-verification
+ *
+ * (C) 2020, T-Systems International GmbH
+ *
+ * Deutsche Telekom AG and all other contributors /
+ * copyright owners license this file to you under the Apache
+ * License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package app.coronawarn.verification.service;
+
+import app.coronawarn.verification.config.VerificationApplicationConfig;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import javax.annotation.PostConstruct;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * A Service to manage the daily partitions of the tan and app_session tables on PostgreSQL.
+ * It is only active if the partitioned schema is enabled, see the liquibase context "partitioned". The application
+ * does not start, if the schema and the configuration entities.cleanup.partitioned do not match.
+ */
+@Slf4j
+@RequiredArgsConstructor
+@Component
+public class EntitiesPartitionService {
+
+  /**
+   * The tables, which are partitioned by created_at.
+   */
+  public static final List<String> PARTITIONED_TABLES = List.of("app_session", "tan");
+
+  private static final String PARTITION_INFIX = "_p";
+  private static final String DEFAULT_PARTITION_SUFFIX = "_default";
+  private static final DateTimeFormatter PARTITION_SUFFIX_FORMAT = DateTimeFormatter.BASIC_ISO_DATE;
+  private static final String FIND_PARTITIONS = "SELECT c.relname FROM pg_inherits i"
+    + " JOIN pg_class c ON c.oid = i.inhrelid JOIN pg_class p ON p.oid = i.inhparent WHERE p.relname = ?";
+  private static final String COUNT_PARTITIONED_TABLES = "SELECT count(*) FROM pg_partitioned_table t"
+    + " JOIN pg_class c ON c.oid = t.partrelid WHERE c.relname IN ('" + String.join("', '", PARTITIONED_TABLES) + "')";
+  private static final String POSTGRESQL = "PostgreSQL";
+
+  @NonNull
+  private final VerificationApplicationConfig applicationConfig;
+
+  @NonNull
+  private final JdbcTemplate jdbcTemplate;
+
+  /**
+   * Checks whether the tables are partitioned.
+   *
+   * @return true if the partitioned schema is enabled
+   */
+  public boolean isPartitioned() {
+    return applicationConfig.getEntities().getCleanup().isPartitioned();
+  }
+
+  /**
+   * Checks that the tables are partitioned if and only if the partitioned schema is enabled. Otherwise either the
+   * daily partitions are not created and the inserts fail, once the partitions of the migration are used up, or the
+   * cleanup looks for partitions, which do not exist, and deletes nothing.
+   */
+  @PostConstruct
+  public void verifySchema() {
+    boolean schemaPartitioned = isSchemaPartitioned();
+    if (schemaPartitioned != isPartitioned()) {
+      throw new IllegalStateException("The tables are " + (schemaPartitioned ? "" : "not ")
+        + "partitioned, but entities.cleanup.partitioned is " + isPartitioned()
+        + ". Enable both, the liquibase context \"partitioned\" and entities.cleanup.partitioned, or none of them.");
+    }
+  }
+
+  private boolean isSchemaPartitioned() {
+    String database = jdbcTemplate.execute(
+      (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+    if (!POSTGRESQL.equals(database)) {
+      return false;
+    }
+    Integer partitioned = jdbcTemplate.queryForObject(COUNT_PARTITIONED_TABLES, Integer.class);
+    if (partitioned != null && partitioned > 0 && partitioned < PARTITIONED_TABLES.size()) {
+      throw new IllegalStateException("Only some of the tables " + PARTITIONED_TABLES + " are partitioned.");
+    }
+    return partitioned != null && partitioned > 0;
+  }
+
+  /**
+   * Creates the daily partitions for today and the configured number of days ahead. A daily partition cannot be
+   * created, if the default partition already holds entities of its day, in which case it is skipped.
+   */
+  @Scheduled(
+    fixedDelayString = "${entities.cleanup.rate}"
+  )
+  public void createPartitions() {
+    if (!isPartitioned()) {
+      return;
+    }
+    LocalDate today = LocalDate.now();
+    for (String table : PARTITIONED_TABLES) {
+      for (int day = 0; day <= applicationConfig.getEntities().getCleanup().getPartitionsAhead(); day++) {
+        LocalDate from = today.plusDays(day);
+        String partition = getPartitionName(table, from);
+        try {
+          jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + partition
+            + " PARTITION OF " + table + " FOR VALUES FROM ('" + from + "') TO ('" + from.plusDays(1) + "')");
+        } catch (DataAccessException e) {
+          log.error("The partition {} could not be created.", partition, e);
+        }
+      }
+    }
+    log.info("The partitions are created.");
+  }
+
+  /**
+   * Detaches and drops all daily partitions, which contain only entities that are older than the before value. The
+   * partition with the entities from before the partitioning ranges from MINVALUE to the day of the migration and is
+   * named like the daily partition of the day before, so it is dropped together with that day.
+   *
+   * @param before LocalDateTime to drop partitions with older entities
+   * @return the number of dropped partitions
+   */
+  public int dropPartitionsBefore(LocalDateTime before) {
+    int dropped = 0;
+    for (String table : PARTITIONED_TABLES) {
+      for (String partition : jdbcTemplate.queryForList(FIND_PARTITIONS, String.class, table)) {
+        LocalDate day = getPartitionDay(table, partition);
+        if (day != null && !day.plusDays(1).atStartOfDay().isAfter(before)) {
+          log.info("Drop the expired partition {}.", partition);
+          jdbcTemplate.execute("ALTER TABLE " + table + " DETACH PARTITION " + partition);
+          jdbcTemplate.execute("DROP TABLE " + partition);
+          dropped++;
+        }
+      }
+    }
+    return dropped;
+  }
+
+  private String getPartitionName(String table, LocalDate day) {
+    return table + PARTITION_INFIX + PARTITION_SUFFIX_FORMAT.format(day);
+  }
+
+  private LocalDate getPartitionDay(String table, String partition) {
+    if (partition.equals(table + DEFAULT_PARTITION_SUFFIX)) {
+      return null;
+    }
+    String prefix = table + PARTITION_INFIX;
+    String suffix = partition.substring(Math.min(prefix.length(), partition.length()));
+    if (!partition.startsWith(prefix) || suffix.length() != 8 || !suffix.chars().allMatch(Character::isDigit)) {
+      log.warn("The partition {} is not a daily partition.", partition);
+      return null;
+    }
+    return LocalDate.parse(suffix, PARTITION_SUFFIX_FORMAT);
+  }
+}
@@ -0,0 +1,38 @@
+/*
+ * Corona-Warn-App / cwa-verification
+ *
+ * (C) 2020, T-Systems International GmbH
+ *
+ * Deutsche Telekom AG and all other contributors /
+ * copyright owners license this file to you under the Apache
+ * License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package app.coronawarn.verification.service;
+
+/**
+ * A {@link FakeDelayModel} derives the delay of a fake response from the measured latencies of the real requests to
+ * the same endpoint. The model is selected by the property fake-delay.model.
+ */
+public interface FakeDelayModel {
+
+  /**
+   * Returns the delay for a fake response.
+   *
+   * @param estimator the latency estimator of the real requests to the endpoint
+   * @return the delay in milliseconds
+   */
+  long getDelay(LatencyEstimator estimator);
+}
@@ -23,8 +23,9 @@
 package app.coronawarn.verification.service;
 
 import app.coronawarn.verification.config.VerificationApplicationConfig;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.math3.distribution.PoissonDistribution;
 import org.springframework.stereotype.Component;
 
 /**
@@ -34,109 +35,135 @@
 @Component
 public class FakeDelayService {
 
-  private final long movingAverageSampleSize;
+  private static final String MEAN_GAUGE_NAME = "verification_fake_delay.mean";
+  private static final String LATENCY_GAUGE_NAME = "verification_fake_delay.latency";
+  private static final double[] QUANTILES = {0.5, 0.95, 0.99};
 
-  private long fakeDelayTest;
-  private long fakeDelayAck;
-  private long fakeDelayTan;
-  private long fakeDelayToken;
+  private final FakeDelayModel fakeDelayModel;
+  private final LatencyEstimator fakeDelayTest;
+  private final LatencyEstimator fakeDelayAck;
+  private final LatencyEstimator fakeDelayTan;
+  private final LatencyEstimator fakeDelayToken;
 
   /**
-   * Constructor for the FakeDelayService.
+   * Constructor for the FakeDelayService that also registers the latency gauges of the endpoints.
    */
-  public FakeDelayService(VerificationApplicationConfig applicationConfig) {
-    this.fakeDelayTest = applicationConfig.getInitialFakeDelayMilliseconds();
-    this.fakeDelayAck = applicationConfig.getInitialFakeDelayMilliseconds();
-    this.fakeDelayTan = applicationConfig.getInitialFakeDelayMilliseconds();
-    this.fakeDelayToken = applicationConfig.getInitialFakeDelayMilliseconds();
-    this.movingAverageSampleSize = applicationConfig.getFakeDelayMovingAverageSamples();
+  public FakeDelayService(VerificationApplicationConfig applicationConfig, MeterRegistry meterRegistry,
+                          FakeDelayModel fakeDelayModel) {
+    this.fakeDelayModel = fakeDelayModel;
+    this.fakeDelayTest = createEstimator(applicationConfig);
+    this.fakeDelayAck = createEstimator(applicationConfig);
+    this.fakeDelayTan = createEstimator(applicationConfig);
+    this.fakeDelayToken = createEstimator(applicationConfig);
+    registerGauges(meterRegistry, "test", fakeDelayTest);
+    registerGauges(meterRegistry, "ack", fakeDelayAck);
+    registerGauges(meterRegistry, "tan", fakeDelayTan);
+    registerGauges(meterRegistry, "token", fakeDelayToken);
+  }
+
+  private static LatencyEstimator createEstimator(VerificationApplicationConfig applicationConfig) {
+    return new LatencyEstimator(applicationConfig.getInitialFakeDelayMilliseconds(),
+      applicationConfig.getFakeDelayMovingAverageSamples(),
+      new LatencyHistogram(applicationConfig.getFakeDelay().getWindow()));
+  }
+
+  private static void registerGauges(MeterRegistry meterRegistry, String endpoint, LatencyEstimator estimator) {
+    Gauge.builder(MEAN_GAUGE_NAME, estimator, e -> e.getMovingAverage() / 1000.)
+      .tag("endpoint", endpoint)
+      .baseUnit("seconds")
+      .description("Moving average of the real request duration, which is the mean fake delay.")
+      .register(meterRegistry);
+    for (double quantile : QUANTILES) {
+      Gauge.builder(LATENCY_GAUGE_NAME, estimator, e -> e.getValueAtQuantile(quantile) / 1000.)
+        .tag("endpoint", endpoint)
+        .tag("quantile", String.valueOf(quantile))
+        .baseUnit("seconds")
+        .description("Quantile of the real request duration.")
+        .register(meterRegistry);
+    }
   }
 
   /**
    * Returns the current fake delay after applying random jitter.
    */
   public long getJitteredFakeTanDelay() {
-    return new PoissonDistribution(fakeDelayTan).sample();
+    return fakeDelayModel.getDelay(fakeDelayTan);
   }
 
   /**
    * Returns the current fake delay after applying random jitter.
    */
   public long getJitteredFakeTestDelay() {
-    return new PoissonDistribution(fakeDelayTest).sample();
+    return fakeDelayModel.getDelay(fakeDelayTest);
   }
 
   /**
    * Returns the current fake delay after applying random jitter.
    */
   public long getJitteredFakeAckDelay() {
-    return new PoissonDistribution(fakeDelayTest).sample();
+    return fakeDelayModel.getDelay(fakeDelayAck);
   }
 
   /**
    * Returns the current fake delay after applying random jitter.
    */
   public long getJitteredFakeTokenDelay() {
-    return new PoissonDistribution(fakeDelayToken).sample();
+    return fakeDelayModel.getDelay(fakeDelayToken);
   }
 
   /**
    * Updates the moving average for the request duration for the Tan Endpoint with the specified value.
    */
   public void updateFakeTanRequestDelay(long realRequestDuration) {
-    final long currentDelay = fakeDelayTan;
-    fakeDelayTan = currentDelay + (realRequestDuration - currentDelay) / movingAverageSampleSize;
+    fakeDelayTan.update(realRequestDuration);
   }
 
   /**
    * Updates the moving average for the request duration for the Tan Endpoint with the specified value.
    */
   public void updateFakeTestRequestDelay(long realRequestDuration) {
-    final long currentDelay = fakeDelayTest;
-    fakeDelayTest = currentDelay + (realRequestDuration - currentDelay) / movingAverageSampleSize;
+    fakeDelayTest.update(realRequestDuration);
   }
 
   /**
    * Updates the moving average for the request duration for the Tan Endpoint with the specified value.
    */
   public void updateFakeAckRequestDelay(long realRequestDuration) {
-    final long currentDelay = fakeDelayAck;
-    fakeDelayAck = currentDelay + (realRequestDuration - currentDelay) / movingAverageSampleSize;
+    fakeDelayAck.update(realRequestDuration);
   }
 
   /**
    * Updates the moving average for the request duration for the Tan Endpoint with the specified value.
    */
   public void updateFakeTokenRequestDelay(long realRequestDuration) {
-    final long currentDelay = fakeDelayToken;
-    fakeDelayToken = currentDelay + (realRequestDuration - currentDelay) / movingAverageSampleSize;
+    fakeDelayToken.update(realRequestDuration);
   }
 
   /**
    * Returns the current fake delay in seconds. Used for monitoring.
    */
   public Double getFakeTanDelayInSeconds() {
-    return fakeDelayTan / 1000.;
+    return fakeDelayTan.getMovingAverage() / 1000.;
   }
 
   /**
    * Returns the current fake delay in seconds. Used for monitoring.
    */
   public Double getFakeTestDelayInSeconds() {
-    return fakeDelayTest / 1000.;
+    return fakeDelayTest.getMovingAverage() / 1000.;
   }
 
   /**
    * Returns the current fake delay in seconds. Used for monitoring.
    */
   public Double getFakeAckDelayInSeconds() {
-    return fakeDelayAck / 1000.;
+    return fakeDelayAck.getMovingAverage() / 1000.;
   }
 
   /**
    * Returns the current fake delay in seconds. Used for monitoring.
    */
   public Double getFakeTokenDelayInSeconds() {
-    return fakeDelayToken / 1000.;
+    return fakeDelayToken.getMovingAverage() / 1000.;
   }
 }
@@ -22,15 +22,12 @@
 
 package app.coronawarn.verification.service;
 
-import static java.util.concurrent.TimeUnit.MILLISECONDS;
-
+import app.coronawarn.verification.exception.VerificationServerException;
 import app.coronawarn.verification.model.RegistrationToken;
 import app.coronawarn.verification.model.RegistrationTokenRequest;
 import app.coronawarn.verification.model.Tan;
 import app.coronawarn.verification.model.TestResult;
 import java.util.UUID;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
 import javax.validation.Valid;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
@@ -54,7 +51,8 @@ public class FakeRequestService {
   @NonNull
   private final FakeDelayService fakeDelayService;
 
-  private final ScheduledExecutorService scheduledExecutor = Executors.newScheduledThreadPool(4);
+  @NonNull
+  private final FakeResponseTimer fakeResponseTimer;
 
   private static final Integer TESTRESULT_RESULT_PADDING = 1;
   private static final Integer TAN_RESPONSE_PADDING_LENGTH = 15;
@@ -72,8 +70,7 @@ public DeferredResult<ResponseEntity<Tan>> generateTan(@Valid @RequestBody Regis
     DeferredResult<ResponseEntity<Tan>> deferredResult = new DeferredResult<>();
     Tan returnTan = new Tan(UUID.randomUUID().toString(),
       RandomStringUtils.randomAlphanumeric(TAN_RESPONSE_PADDING_LENGTH));
-    scheduledExecutor.schedule(() -> deferredResult.setResult(ResponseEntity.status(HttpStatus.CREATED)
-      .body(returnTan)), delay, MILLISECONDS);
+    schedule(deferredResult, ResponseEntity.status(HttpStatus.CREATED).body(returnTan), delay);
     return deferredResult;
   }
 
@@ -86,11 +83,11 @@ public DeferredResult<ResponseEntity<Tan>> generateTan(@Valid @RequestBody Regis
    */
   public DeferredResult<ResponseEntity<RegistrationToken>> generateRegistrationToken(
     @RequestBody @Valid RegistrationTokenRequest request) {
-    long delay = fakeDelayService.getJitteredFakeTanDelay();
+    long delay = fakeDelayService.getJitteredFakeTokenDelay();
     DeferredResult<ResponseEntity<RegistrationToken>> deferredResult = new DeferredResult<>();
-    scheduledExecutor.schedule(() -> deferredResult.setResult(ResponseEntity.status(HttpStatus.CREATED)
+    schedule(deferredResult, ResponseEntity.status(HttpStatus.CREATED)
       .body(new RegistrationToken(UUID.randomUUID().toString(),
-        RandomStringUtils.randomAlphanumeric(TESTRESULT_RESULT_PADDING)))), delay, MILLISECONDS);
+        RandomStringUtils.randomAlphanumeric(TESTRESULT_RESULT_PADDING))), delay);
     return deferredResult;
   }
 
@@ -104,8 +101,7 @@ public DeferredResult<ResponseEntity<RegistrationToken>> generateRegistrationTok
   public DeferredResult<ResponseEntity<TestResult>> getTestState() {
     long delay = fakeDelayService.getJitteredFakeTestDelay();
     DeferredResult<ResponseEntity<TestResult>> deferredResult = new DeferredResult<>();
-    scheduledExecutor.schedule(() -> deferredResult.setResult(ResponseEntity
-      .ok(TestResult.dummyTestResult())), delay, MILLISECONDS);
+    schedule(deferredResult, ResponseEntity.ok(TestResult.dummyTestResult()), delay);
     return deferredResult;
   }
 
@@ -118,9 +114,14 @@ public DeferredResult<ResponseEntity<TestResult>> getTestState() {
   public DeferredResult<ResponseEntity<Void>> getAck() {
     long delay = fakeDelayService.getJitteredFakeAckDelay();
     DeferredResult<ResponseEntity<Void>> deferredResult = new DeferredResult<>();
-    scheduledExecutor.schedule(() -> deferredResult.setResult(ResponseEntity
-      .noContent().build()), delay, MILLISECONDS);
+    schedule(deferredResult, ResponseEntity.noContent().build(), delay);
     return deferredResult;
   }
 
+  private <T> void schedule(DeferredResult<T> deferredResult, T result, long delay) {
+    if (!fakeResponseTimer.schedule(() -> deferredResult.setResult(result), delay)) {
+      deferredResult.setErrorResult(
+        new VerificationServerException(HttpStatus.SERVICE_UNAVAILABLE, "Too many pending fake responses"));
+    }
+  }
 }
@@ -0,0 +1,213 @@
+/*
+ * Corona-Warn-App / cwa-verification
+ *
+ * (C) 2020, T-Systems International GmbH
+ *
+ * Deutsche Telekom AG and all other contributors /
+ * copyright owners license this file to you under the Apache
+ * License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package app.coronawarn.verification.service;
+
+import app.coronawarn.verification.config.VerificationApplicationConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * This class delays the fake responses with a hashed wheel timer. Scheduling only appends the task to a lock-free
+ * queue, and a single worker thread moves the tasks into the wheel buckets and runs them when their tick has passed.
+ * The number of pending tasks is bounded and on shutdown all pending tasks are run immediately.
+ */
+@Slf4j
+@Component
+public class FakeResponseTimer {
+
+  private static final String PENDING_GAUGE_NAME = "verification_fake.pending";
+  private static final String LAG_TIMER_NAME = "verification_fake.scheduling_lag";
+  private static final String REJECTED_COUNTER_NAME = "verification_fake.rejected";
+  private static final long SHUTDOWN_TIMEOUT_MILLIS = 5000;
+
+  private final long tickNanos;
+  private final int mask;
+  private final int maxPending;
+  private final ArrayDeque<Timeout>[] wheel;
+  private final Queue<Timeout> newTimeouts = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger pending = new AtomicInteger();
+  private final Thread worker;
+  private final long startTime;
+  private final Timer lag;
+  private final Counter rejected;
+  private volatile boolean running = true;
+  private long tick;
+
+  /**
+   * Constructor for the FakeResponseTimer that starts the worker thread.
+   *
+   * @param verificationApplicationConfig the {@link VerificationApplicationConfig} with the timer configuration
+   * @param meterRegistry the {@link MeterRegistry} for the timer metrics
+   */
+  @SuppressWarnings("unchecked")
+  public FakeResponseTimer(VerificationApplicationConfig verificationApplicationConfig, MeterRegistry meterRegistry) {
+    VerificationApplicationConfig.FakeTimer config = verificationApplicationConfig.getFakeTimer();
+    int wheelSize = Integer.highestOneBit(Math.max(1, config.getWheelSize()));
+    this.tickNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, config.getTickDuration()));
+    this.mask = wheelSize - 1;
+    this.maxPending = config.getMaxPending();
+    this.wheel = new ArrayDeque[wheelSize];
+    for (int i = 0; i < wheelSize; i++) {
+      wheel[i] = new ArrayDeque<>();
+    }
+    Gauge.builder(PENDING_GAUGE_NAME, pending, AtomicInteger::get)
+      .description("Fake responses waiting for their delay.")
+      .register(meterRegistry);
+    this.lag = Timer.builder(LAG_TIMER_NAME)
+      .description("Delay between the scheduled and the actual time of a fake response.")
+      .register(meterRegistry);
+    this.rejected = Counter.builder(REJECTED_COUNTER_NAME)
+      .description("Fake responses rejected because too many are pending.")
+      .register(meterRegistry);
+    this.startTime = System.nanoTime();
+    this.worker = new Thread(this::run, "fake-response-timer");
+    this.worker.setDaemon(true);
+    this.worker.start();
+  }
+
+  /**
+   * Schedules a task to run after the delay.
+   *
+   * @param task the task to run
+   * @param delayMillis the delay in milliseconds
+   * @return false if the task is rejected, because too many tasks are pending or the timer is stopped
+   */
+  public boolean schedule(Runnable task, long delayMillis) {
+    if (!running) {
+      rejected.increment();
+      return false;
+    }
+    if (pending.incrementAndGet() > maxPending) {
+      pending.decrementAndGet();
+      rejected.increment();
+      return false;
+    }
+    Timeout timeout = new Timeout(task, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMillis));
+    newTimeouts.add(timeout);
+    // the timer may be stopped concurrently, a task which the worker did not take anymore is rejected
+    if (!running && newTimeouts.remove(timeout)) {
+      pending.decrementAndGet();
+      rejected.increment();
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Returns the number of pending tasks.
+   *
+   * @return the number of pending tasks
+   */
+  public int getPending() {
+    return pending.get();
+  }
+
+  /**
+   * Stops the timer and runs all pending tasks immediately.
+   */
+  @PreDestroy
+  public void stop() {
+    running = false;
+    LockSupport.unpark(worker);
+    try {
+      worker.join(SHUTDOWN_TIMEOUT_MILLIS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void run() {
+    while (running) {
+      long deadline = startTime + (tick + 1) * tickNanos;
+      long sleep;
+      while (running && (sleep = deadline - System.nanoTime()) > 0) {
+        LockSupport.parkNanos(this, sleep);
+      }
+      transferNewTimeouts();
+      expire(wheel[(int) (tick & mask)]);
+      tick++;
+    }
+    transferNewTimeouts();
+    for (ArrayDeque<Timeout> bucket : wheel) {
+      Timeout timeout;
+      while ((timeout = bucket.poll()) != null) {
+        runTimeout(timeout);
+      }
+    }
+    log.info("The fake response timer is stopped.");
+  }
+
+  private void transferNewTimeouts() {
+    Timeout timeout;
+    while ((timeout = newTimeouts.poll()) != null) {
+      long calculated = (timeout.deadline - startTime) / tickNanos;
+      timeout.rounds = (calculated - tick) / wheel.length;
+      wheel[(int) (Math.max(calculated, tick) & mask)].add(timeout);
+    }
+  }
+
+  private void expire(ArrayDeque<Timeout> bucket) {
+    for (int i = bucket.size(); i > 0; i--) {
+      Timeout timeout = bucket.poll();
+      if (timeout.rounds <= 0) {
+        runTimeout(timeout);
+      } else {
+        timeout.rounds--;
+        bucket.add(timeout);
+      }
+    }
+  }
+
+  private void runTimeout(Timeout timeout) {
+    pending.decrementAndGet();
+    lag.record(Math.max(0, System.nanoTime() - timeout.deadline), TimeUnit.NANOSECONDS);
+    try {
+      timeout.task.run();
+    } catch (RuntimeException e) {
+      log.error("The fake response could not be sent.", e);
+    }
+  }
+
+  private static final class Timeout {
+
+    private final Runnable task;
+    private final long deadline;
+    private long rounds;
+
+    private Timeout(Runnable task, long deadline) {
+      this.task = task;
+      this.deadline = deadline;
+    }
+  }
+}
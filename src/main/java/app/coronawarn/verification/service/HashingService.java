@@ -21,10 +21,13 @@
 
 package app.coronawarn.verification.service;
 
+import java.nio.charset.StandardCharsets;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.codec.digest.DigestUtils;
 import org.springframework.stereotype.Component;
 
 /**
@@ -36,6 +39,9 @@ public class HashingService {
 
   private static final String GUID_HASH_PATTERN = "^[0-9A-Fa-f]{64}$";
   private static final Pattern PATTERN = Pattern.compile(GUID_HASH_PATTERN);
+  private static final char[] HEX_CHARS = "0123456789abcdef".toCharArray();
+  private static final char[] CHECK_DIGITS = "GH23456789ABCDEF".toCharArray();
+  private static final ThreadLocal<Sha256Hasher> HASHERS = ThreadLocal.withInitial(Sha256Hasher::new);
 
   /**
    * Calculates the SHA-256 digest and returns the value as a hex string.
@@ -45,7 +51,18 @@ public class HashingService {
    */
   public String hash(String toHash) {
     log.debug("Hash process has been called.");
-    return DigestUtils.sha256Hex(toHash);
+    return HASHERS.get().hashHex(toHash);
+  }
+
+  /**
+   * Calculates the SHA-256 digest and returns the raw digest bytes.
+   *
+   * @param toHash that will be Hashed
+   * @return the raw digest of the supplied string
+   */
+  public byte[] digest(String toHash) {
+    log.debug("Digest process has been called.");
+    return HASHERS.get().hash(toHash).clone();
   }
 
   /**
@@ -56,7 +73,7 @@ public String hash(String toHash) {
    */
   public String getCheckDigit(String toHash) {
     log.info("get check digit process has been called.");
-    return DigestUtils.sha256Hex(toHash).substring(0, 1).toUpperCase().replace("0", "G").replace("1", "H");
+    return String.valueOf(CHECK_DIGITS[(HASHERS.get().hash(toHash)[0] >> 4) & 0x0f]);
   }
 
   /**
@@ -73,4 +90,65 @@ public boolean isHashValid(String toValidate) {
     }
     return matches;
   }
+
+  /*
+   * Reusable SHA-256 state of a thread. The digest, the input buffer, the digest buffer and the hex buffer are
+   * allocated once per thread, so a hash only allocates the resulting String.
+   */
+  private static class Sha256Hasher {
+
+    private static final int DIGEST_LENGTH = 32;
+
+    private final MessageDigest digest;
+    private final byte[] output = new byte[DIGEST_LENGTH];
+    private final char[] hex = new char[DIGEST_LENGTH * 2];
+    private byte[] input = new byte[128];
+
+    Sha256Hasher() {
+      try {
+        digest = MessageDigest.getInstance("SHA-256");
+      } catch (NoSuchAlgorithmException e) {
+        throw new IllegalStateException("SHA-256 is not supported.", e);
+      }
+    }
+
+    byte[] hash(String toHash) {
+      int length = toHash.length();
+      if (isAscii(toHash)) {
+        if (input.length < length) {
+          input = new byte[Math.max(length, input.length * 2)];
+        }
+        for (int i = 0; i < length; i++) {
+          input[i] = (byte) toHash.charAt(i);
+        }
+        digest.update(input, 0, length);
+      } else {
+        digest.update(toHash.getBytes(StandardCharsets.UTF_8));
+      }
+      try {
+        digest.digest(output, 0, DIGEST_LENGTH);
+      } catch (DigestException e) {
+        throw new IllegalStateException("SHA-256 digest could not be calculated.", e);
+      }
+      return output;
+    }
+
+    String hashHex(String toHash) {
+      byte[] bytes = hash(toHash);
+      for (int i = 0; i < DIGEST_LENGTH; i++) {
+        hex[2 * i] = HEX_CHARS[(bytes[i] >> 4) & 0x0f];
+        hex[2 * i + 1] = HEX_CHARS[bytes[i] & 0x0f];
+      }
+      return new String(hex);
+    }
+
+    private static boolean isAscii(String value) {
+      for (int i = 0; i < value.length(); i++) {
+        if (value.charAt(i) >= 0x80) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
 }
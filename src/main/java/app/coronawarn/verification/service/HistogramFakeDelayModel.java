@@ -0,0 +1,49 @@
+/*
+ * Corona-Warn-App / cwa-verification
+ *
+ * (C) 2020, T-Systems International GmbH
+ *
+ * Deutsche Telekom AG and all other contributors /
+ * copyright owners license this file to you under the Apache
+ * License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package app.coronawarn.verification.service;
+
+import app.coronawarn.verification.config.VerificationApplicationConfig;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * This {@link FakeDelayModel} draws the fake delay from the rolling histogram of the real latencies, so fake
+ * responses follow the same distribution as the real ones. Until enough real latencies are measured, the delay is
+ * drawn from a Poisson distribution around the moving average.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "fake-delay.model", havingValue = "histogram", matchIfMissing = true)
+public class HistogramFakeDelayModel implements FakeDelayModel {
+
+  @NonNull
+  private final VerificationApplicationConfig verificationApplicationConfig;
+
+  @Override
+  public long getDelay(LatencyEstimator estimator) {
+    return estimator.sample(verificationApplicationConfig.getFakeDelay().getMinSamples())
+      .orElseGet(() -> PoissonSampler.sample(estimator.getMovingAverage()));
+  }
+}
@@ -26,22 +26,30 @@
 import app.coronawarn.verification.model.AuthorizationRole;
 import app.coronawarn.verification.model.Certs;
 import app.coronawarn.verification.model.Key;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import feign.FeignException;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
 import io.jsonwebtoken.Jwts;
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.security.PublicKey;
 import java.security.cert.CertificateException;
 import java.security.cert.CertificateFactory;
 import java.security.cert.X509Certificate;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 /**
@@ -71,6 +79,8 @@ public class JwtService {
 
   private static final String ROLES = "roles";
   private static final String REALM_ACCESS = "realm_access";
+  private static final String KEY_ID = "kid";
+  private static final ObjectMapper HEADER_MAPPER = new ObjectMapper();
 
   @NonNull
   private final IamClient iamClient;
@@ -78,6 +88,15 @@ public class JwtService {
   @NonNull
   private final VerificationApplicationConfig verificationApplicationConfig;
 
+  /**
+   * The public keys of the IAM server by key id, in the order the IAM server published them.
+   */
+  private volatile Map<String, PublicKey> publicKeys = Collections.emptyMap();
+
+  private volatile long publicKeysFetchedAt;
+
+  private volatile long publicKeysForcedRefreshAt;
+
   /**
    * Validates the given token is given, the token starts with the needed prefix, the signing key is not null and the
    * token is valid.
@@ -92,7 +111,7 @@ public boolean isAuthorized(String authorizationToken) {
     }
     if (null != authorizationToken && authorizationToken.startsWith(TOKEN_PREFIX)) {
       String jwtToken = authorizationToken.substring(TOKEN_PREFIX.length());
-      return validateToken(jwtToken, getPublicKey());
+      return validateToken(jwtToken, getPublicKey(getKeyId(jwtToken)));
     }
     return false;
   }
@@ -149,34 +168,107 @@ private Claims getAllClaimsFromToken(final String token, final PublicKey publicK
   }
 
   /**
-   * Get the certificate from IAM client.
-   * As long as Keycloak can rotate it’s keys we decided to reload 
-   * the key on every validateToken call especially the method call 
-   * is fortunately limited in time and number too.
+   * Get the first valid public key of the IAM server.
    *
    * @return the calculated Public key from the certificate
    */
   public PublicKey getPublicKey() {
-    Certs certs = iamClient.certs();
-    log.debug("process getPublicKey() - cert info from IAM certs: {}", certs);
-    for (Key key : certs.getKeys()) {
-      if (key.isCertValid()) {
-        String certb64 = key.getX5c().get(0);
-        String wrappedCert = BEGIN_CERT + System.lineSeparator() + certb64 + System.lineSeparator() + END_CERT;
-        try {
-          byte[] certBytes = wrappedCert.getBytes(java.nio.charset.StandardCharsets.UTF_8);
-          CertificateFactory certFactory = CertificateFactory.getInstance("X.509");
-          InputStream in = new ByteArrayInputStream(certBytes);
-          X509Certificate certificate = (X509Certificate) certFactory.generateCertificate(in);
-          return certificate.getPublicKey();
-        } catch (CertificateException ex) {
-          log.warn("Error generate certificate: {}.", ex.getMessage());
+    return getPublicKey(null);
+  }
+
+  /**
+   * Get the public key of the IAM server for the given key id. The keys are served from a cache, which is refreshed
+   * in the background. Only a key id which is unknown to the cache forces a refetch of the certificates, because
+   * Keycloak can rotate its keys at any time.
+   *
+   * @param keyId the key id of the token header or <code>null</code> for the first valid key
+   * @return the calculated Public key from the certificate or <code>null</code> if there is no such key
+   */
+  public PublicKey getPublicKey(String keyId) {
+    Map<String, PublicKey> keys = publicKeys;
+    long now = System.currentTimeMillis();
+    // the scheduled refresh keeps the keys fresh, this is only the fallback if it is not running or failing
+    if (publicKeysFetchedAt == 0 || now - publicKeysFetchedAt > 2 * getJwtConfig().getCertsRefreshRate()) {
+      keys = refreshPublicKeys();
+    }
+    if (keyId == null) {
+      return keys.values().stream().findFirst().orElse(null);
+    }
+    PublicKey publicKey = keys.get(keyId);
+    if (publicKey == null && now - publicKeysForcedRefreshAt > getJwtConfig().getCertsMinRefetchInterval()) {
+      log.info("Unknown key id {}, the certificates are fetched again.", keyId);
+      publicKeysForcedRefreshAt = now;
+      publicKey = refreshPublicKeys().get(keyId);
+    }
+    return publicKey;
+  }
+
+  /**
+   * Refreshes the cached public keys of the IAM server, if the JWT validation is enabled.
+   */
+  @Scheduled(
+    fixedDelayString = "${jwt.certs-refresh-rate:300000}"
+  )
+  public void refreshPublicKeysScheduled() {
+    if (getJwtConfig().getEnabled()) {
+      refreshPublicKeys();
+    }
+  }
+
+  private synchronized Map<String, PublicKey> refreshPublicKeys() {
+    try {
+      Certs certs = iamClient.certs();
+      log.debug("process refreshPublicKeys() - cert info from IAM certs: {}", certs);
+      Map<String, PublicKey> keys = new LinkedHashMap<>();
+      for (Key key : certs.getKeys()) {
+        PublicKey publicKey = toPublicKey(key);
+        if (publicKey != null) {
+          keys.put(key.getKid(), publicKey);
         }
-      } else {
-        log.warn("Wrong use or alg key given! use: {} alg: {}", key.getUse(), key.getAlg());
-        log.warn("Keys use: {} and alg: {} are expected!", Key.SIG, Key.RS256);
       }
+      publicKeys = Collections.unmodifiableMap(keys);
+      publicKeysFetchedAt = System.currentTimeMillis();
+    } catch (FeignException ex) {
+      log.warn("Error fetching the certificates from IAM, the cached keys are kept: {}.", ex.getMessage());
+    }
+    return publicKeys;
+  }
+
+  private PublicKey toPublicKey(Key key) {
+    if (key.isCertValid()) {
+      String certb64 = key.getX5c().get(0);
+      String wrappedCert = BEGIN_CERT + System.lineSeparator() + certb64 + System.lineSeparator() + END_CERT;
+      try {
+        byte[] certBytes = wrappedCert.getBytes(java.nio.charset.StandardCharsets.UTF_8);
+        CertificateFactory certFactory = CertificateFactory.getInstance("X.509");
+        InputStream in = new ByteArrayInputStream(certBytes);
+        X509Certificate certificate = (X509Certificate) certFactory.generateCertificate(in);
+        return certificate.getPublicKey();
+      } catch (CertificateException ex) {
+        log.warn("Error generate certificate: {}.", ex.getMessage());
+      }
+    } else {
+      log.warn("Wrong use or alg key given! use: {} alg: {}", key.getUse(), key.getAlg());
+      log.warn("Keys use: {} and alg: {} are expected!", Key.SIG, Key.RS256);
     }
     return null;
   }
+
+  private String getKeyId(final String token) {
+    int headerEnd = token.indexOf('.');
+    if (headerEnd <= 0) {
+      return null;
+    }
+    try {
+      JsonNode keyId = HEADER_MAPPER.readTree(Base64.getUrlDecoder().decode(token.substring(0, headerEnd))).get(KEY_ID);
+      return keyId != null ? keyId.asText() : null;
+    } catch (IllegalArgumentException | IOException ex) {
+      log.warn("The token header could not be read: {}.", ex.getMessage());
+      return null;
+    }
+  }
+
+  private VerificationApplicationConfig.Jwt getJwtConfig() {
+    return verificationApplicationConfig.getJwt();
+  }
 }
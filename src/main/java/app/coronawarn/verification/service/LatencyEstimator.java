@@ -0,0 +1,91 @@
+/*
+ * Corona-Warn-App / cwa-verification
+ *
+ * (C) 2020, T-Systems International GmbH
+ *
+ * Deutsche Telekom AG and all other contributors /
+ * copyright owners license this file to you under the Apache
+ * License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package app.coronawarn.verification.service;
+
+import java.util.OptionalLong;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class estimates the latency of an endpoint by a moving average and a rolling {@link LatencyHistogram}. Both
+ * are updated lock-free, so concurrent updates are neither lost nor block each other.
+ */
+public class LatencyEstimator {
+
+  private final long movingAverageSampleSize;
+  private final AtomicLong movingAverage;
+  private final LatencyHistogram histogram;
+
+  /**
+   * Constructor for the LatencyEstimator.
+   *
+   * @param initialLatency the initial moving average in milliseconds
+   * @param movingAverageSampleSize the number of samples of the moving average
+   * @param histogram the histogram of the latencies
+   */
+  public LatencyEstimator(long initialLatency, long movingAverageSampleSize, LatencyHistogram histogram) {
+    this.movingAverage = new AtomicLong(initialLatency);
+    this.movingAverageSampleSize = movingAverageSampleSize;
+    this.histogram = histogram;
+  }
+
+  /**
+   * Updates the moving average and the histogram with a measured latency.
+   *
+   * @param latency the latency in milliseconds
+   */
+  public void update(long latency) {
+    movingAverage.accumulateAndGet(latency,
+      (current, sample) -> current + (sample - current) / movingAverageSampleSize);
+    histogram.record(latency);
+  }
+
+  /**
+   * Returns the moving average.
+   *
+   * @return the moving average in milliseconds
+   */
+  public long getMovingAverage() {
+    return movingAverage.get();
+  }
+
+  /**
+   * Returns the latency below which the given fraction of the measured latencies lies.
+   *
+   * @param quantile the fraction between 0 and 1
+   * @return the latency in milliseconds
+   */
+  public long getValueAtQuantile(double quantile) {
+    return histogram.getValueAtQuantile(quantile);
+  }
+
+  /**
+   * Returns a latency drawn from the distribution of the measured latencies.
+   *
+   * @param minCount the minimum number of measured latencies required for a sample
+   * @return the latency in milliseconds or empty, if less latencies are measured
+   */
+  public OptionalLong sample(long minCount) {
+    return histogram.sample(minCount, ThreadLocalRandom.current());
+  }
+}
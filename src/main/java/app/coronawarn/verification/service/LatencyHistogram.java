@@ -0,0 +1,185 @@
+/*
+ * Corona-Warn-App / cwa-verification
+ *
+ * (C) 2020, T-Systems International GmbH
+ *
+ * Deutsche Telekom AG and all other contributors /
+ * copyright owners license this file to you under the Apache
+ * License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package app.coronawarn.verification.service;
+
+import java.util.OptionalLong;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * This class counts latencies in milliseconds in log-linear buckets. Latencies below 64 ms are counted exactly,
+ * larger latencies in buckets whose width is at most 1/32 of their value. The counts are kept in rotating time
+ * windows, so the histogram follows the latencies of the last windows only. Each window keeps its total count, so
+ * the quantiles and samples walk the live buckets without copying them. Recording is lock-free.
+ */
+public class LatencyHistogram {
+
+  private static final int SUB_BUCKETS = 32;
+  private static final int EXACT_BUCKETS = 2 * SUB_BUCKETS;
+  private static final int SUB_BUCKET_BITS = Integer.numberOfTrailingZeros(SUB_BUCKETS);
+  private static final long MAX_LATENCY = (1L << 20) - 1;
+  private static final int BUCKETS = indexOf(MAX_LATENCY) + 1;
+  private static final int WINDOWS = 3;
+
+  private final long windowMillis;
+  private final LongSupplier clock;
+  private final AtomicLongArray[] windows = new AtomicLongArray[WINDOWS];
+  private final AtomicLongArray totals = new AtomicLongArray(WINDOWS);
+  private final AtomicLong epoch;
+
+  /**
+   * Constructor for the LatencyHistogram.
+   *
+   * @param windowMillis the length of a time window in milliseconds
+   */
+  public LatencyHistogram(long windowMillis) {
+    this(windowMillis, System::currentTimeMillis);
+  }
+
+  /**
+   * Constructor for the LatencyHistogram with a clock.
+   *
+   * @param windowMillis the length of a time window in milliseconds
+   * @param clock the clock in milliseconds
+   */
+  public LatencyHistogram(long windowMillis, LongSupplier clock) {
+    this.windowMillis = Math.max(1, windowMillis);
+    this.clock = clock;
+    for (int i = 0; i < WINDOWS; i++) {
+      windows[i] = new AtomicLongArray(BUCKETS);
+    }
+    this.epoch = new AtomicLong(clock.getAsLong() / this.windowMillis);
+  }
+
+  /**
+   * Records a latency.
+   *
+   * @param latency the latency in milliseconds
+   */
+  public void record(long latency) {
+    int window = currentWindow();
+    windows[window].incrementAndGet(indexOf(Math.min(MAX_LATENCY, Math.max(0, latency))));
+    totals.incrementAndGet(window);
+  }
+
+  /**
+   * Returns the latency below which the given fraction of the recorded latencies lies.
+   *
+   * @param quantile the fraction between 0 and 1
+   * @return the latency in milliseconds or 0, if no latency is recorded
+   */
+  public long getValueAtQuantile(double quantile) {
+    long total = total();
+    if (total == 0) {
+      return 0;
+    }
+    int index = find(Math.max(1, (long) Math.ceil(quantile * total)));
+    return lowerOf(index) + widthOf(index) / 2;
+  }
+
+  /**
+   * Returns a latency drawn from the distribution of the recorded latencies.
+   *
+   * @param minCount the minimum number of recorded latencies required for a sample
+   * @param random the random generator
+   * @return the latency in milliseconds or empty, if less latencies are recorded
+   */
+  public OptionalLong sample(long minCount, Random random) {
+    long total = total();
+    if (total == 0 || total < minCount) {
+      return OptionalLong.empty();
+    }
+    int index = find(1 + (long) (random.nextDouble() * total));
+    return OptionalLong.of(lowerOf(index) + random.nextInt((int) widthOf(index)));
+  }
+
+  private int currentWindow() {
+    long now = clock.getAsLong() / windowMillis;
+    long last = epoch.get();
+    if (now > last && epoch.compareAndSet(last, now)) {
+      for (long e = Math.max(last + 1, now - WINDOWS + 1); e <= now; e++) {
+        int expired = (int) (e % WINDOWS);
+        AtomicLongArray window = windows[expired];
+        for (int i = 0; i < BUCKETS; i++) {
+          window.set(i, 0);
+        }
+        totals.set(expired, 0);
+      }
+    }
+    return (int) (Math.max(now, last) % WINDOWS);
+  }
+
+  private long total() {
+    currentWindow();
+    long total = 0;
+    for (int i = 0; i < WINDOWS; i++) {
+      total += totals.get(i);
+    }
+    return total;
+  }
+
+  /*
+   * Returns the index of the bucket which contains the target-th latency. The buckets may change during the walk, so
+   * the last non-empty bucket is returned if the target is not reached.
+   */
+  private int find(long target) {
+    long cumulative = 0;
+    int last = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      long count = 0;
+      for (AtomicLongArray window : windows) {
+        count += window.get(i);
+      }
+      if (count > 0) {
+        cumulative += count;
+        last = i;
+        if (cumulative >= target) {
+          return i;
+        }
+      }
+    }
+    return last;
+  }
+
+  private static int indexOf(long latency) {
+    if (latency < EXACT_BUCKETS) {
+      return (int) latency;
+    }
+    int shift = 63 - Long.numberOfLeadingZeros(latency) - SUB_BUCKET_BITS;
+    return EXACT_BUCKETS + (shift - 1) * SUB_BUCKETS + (int) ((latency >> shift) - SUB_BUCKETS);
+  }
+
+  private static long lowerOf(int index) {
+    if (index < EXACT_BUCKETS) {
+      return index;
+    }
+    int shift = (index - EXACT_BUCKETS) / SUB_BUCKETS + 1;
+    return (long) ((index - EXACT_BUCKETS) % SUB_BUCKETS + SUB_BUCKETS) << shift;
+  }
+
+  private static long widthOf(int index) {
+    return index < EXACT_BUCKETS ? 1 : 1L << ((index - EXACT_BUCKETS) / SUB_BUCKETS + 1);
+  }
+}
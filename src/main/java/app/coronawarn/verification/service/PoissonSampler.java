@@ -0,0 +1,99 @@
+/*
+ * Corona-Warn-App / cwa-verification
+ *
+ * (C) 2020, T-Systems International GmbH
+ *
+ * Deutsche Telekom AG and all other contributors /
+ * copyright owners license this file to you under the Apache
+ * License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package app.coronawarn.verification.service;
+
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import org.apache.commons.math3.special.Gamma;
+
+/**
+ * This class samples Poisson distributed values without allocations. Small means use the multiplication method of
+ * Knuth, larger means the transformed rejection method PTRS of Hoermann, which needs a constant number of random
+ * values independent of the mean.
+ */
+public final class PoissonSampler {
+
+  private static final double PTRS_MIN_MEAN = 10;
+
+  private PoissonSampler() {
+  }
+
+  /**
+   * Returns a Poisson distributed value with the random generator of the current thread.
+   *
+   * @param mean the mean of the Poisson distribution
+   * @return the sampled value
+   */
+  public static long sample(double mean) {
+    return sample(mean, ThreadLocalRandom.current());
+  }
+
+  /**
+   * Returns a Poisson distributed value.
+   *
+   * @param mean the mean of the Poisson distribution
+   * @param random the random generator
+   * @return the sampled value
+   */
+  public static long sample(double mean, Random random) {
+    if (mean <= 0) {
+      return 0;
+    }
+    return mean < PTRS_MIN_MEAN ? sampleMultiplication(mean, random) : sampleTransformedRejection(mean, random);
+  }
+
+  private static long sampleMultiplication(double mean, Random random) {
+    double limit = Math.exp(-mean);
+    long count = 0;
+    double product = random.nextDouble();
+    while (product > limit) {
+      count++;
+      product *= random.nextDouble();
+    }
+    return count;
+  }
+
+  private static long sampleTransformedRejection(double mean, Random random) {
+    double logMean = Math.log(mean);
+    double b = 0.931 + 2.53 * Math.sqrt(mean);
+    double a = -0.059 + 0.02483 * b;
+    double logInvAlpha = Math.log(1.1239 + 1.1328 / (b - 3.4));
+    double vr = 0.9277 - 3.6224 / (b - 2);
+    while (true) {
+      double u = random.nextDouble() - 0.5;
+      double v = random.nextDouble();
+      double us = 0.5 - Math.abs(u);
+      long k = (long) Math.floor((2 * a / us + b) * u + mean + 0.43);
+      if (us >= 0.07 && v <= vr) {
+        return k;
+      }
+      if (k < 0 || us < 0.013 && v > us) {
+        continue;
+      }
+      if (Math.log(v) + logInvAlpha - Math.log(a / (us * us) + b)
+        <= -mean + k * logMean - Gamma.logGamma(k + 1)) {
+        return k;
+      }
+    }
+  }
+}
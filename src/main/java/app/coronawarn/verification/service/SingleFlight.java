@@ -0,0 +1,92 @@
+/*
+ * Corona-Warn-App / cwa-verification
+ *
+ * (C) 2020, T-Systems International GmbH
+ *
+ * Deutsche Telekom AG and all other contributors /
+ * copyright owners license this file to you under the Apache
+ * License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package app.coronawarn.verification.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * This class merges concurrent calls with the same key into one call. The first caller executes the call, the
+ * callers arriving while it is in flight wait for and share its result or exception.
+ *
+ * @param <K> the key of the call
+ * @param <V> the result of the call
+ */
+public class SingleFlight<K, V> {
+
+  private static final String COALESCED_COUNTER_NAME = "verification_single_flight.coalesced";
+
+  private final Map<K, CompletableFuture<V>> flights = new ConcurrentHashMap<>();
+  private final Counter coalesced;
+
+  /**
+   * Constructor for the SingleFlight that also registers the coalesced calls counter.
+   *
+   * @param operation the name of the operation for the metrics
+   * @param meterRegistry the {@link MeterRegistry} for the metrics
+   */
+  public SingleFlight(String operation, MeterRegistry meterRegistry) {
+    this.coalesced = Counter.builder(COALESCED_COUNTER_NAME)
+      .description("Calls which waited for an identical call in flight.")
+      .tag("operation", operation)
+      .register(meterRegistry);
+  }
+
+  /**
+   * Executes the call or waits for the identical call in flight.
+   *
+   * @param key the key of the call
+   * @param call the call
+   * @return the result of the call
+   */
+  public V execute(K key, Supplier<V> call) {
+    CompletableFuture<V> flight = new CompletableFuture<>();
+    CompletableFuture<V> inFlight = flights.putIfAbsent(key, flight);
+    if (inFlight != null) {
+      coalesced.increment();
+      try {
+        return inFlight.join();
+      } catch (CompletionException e) {
+        if (e.getCause() instanceof RuntimeException) {
+          throw (RuntimeException) e.getCause();
+        }
+        throw e;
+      }
+    }
+    try {
+      V result = call.get();
+      flight.complete(result);
+      return result;
+    } catch (RuntimeException | Error e) {
+      flight.completeExceptionally(e);
+      throw e;
+    } finally {
+      flights.remove(key, flight);
+    }
+  }
+}
@@ -22,20 +22,33 @@
 package app.coronawarn.verification.service;
 
 import app.coronawarn.verification.config.VerificationApplicationConfig;
+import app.coronawarn.verification.domain.HashDigests;
 import app.coronawarn.verification.domain.VerificationTan;
 import app.coronawarn.verification.model.TanSourceOfTrust;
 import app.coronawarn.verification.model.TanType;
+import app.coronawarn.verification.model.TanVerificationStatus;
+import app.coronawarn.verification.model.TeleTanVerification;
 import app.coronawarn.verification.repository.VerificationTanRepository;
+import java.nio.ByteBuffer;
 import java.security.SecureRandom;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import java.util.stream.Collector;
-import java.util.stream.IntStream;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.transaction.Transactional;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Component;
 
 /**
@@ -45,6 +58,14 @@
 @Component
 public class TanService {
 
+  static final int MAX_INSERT_ATTEMPTS = 10;
+
+  /*
+   * The random number generators used by this class to create random
+   * based UUIDs. One per thread to avoid contention on a shared generator.
+   */
+  private static final ThreadLocal<SecureRandom> NUMBER_GENERATOR = ThreadLocal.withInitial(SecureRandom::new);
+
   private final VerificationApplicationConfig verificationApplicationConfig;
 
   /**
@@ -55,6 +76,14 @@ public class TanService {
    * The {@link HashingService}.
    */
   private final HashingService hashingService;
+  /**
+   * The {@link TeleTanRateLimiter}.
+   */
+  private final TeleTanRateLimiter teleTanRateLimiter;
+  /**
+   * The {@link TeleTanPool}.
+   */
+  private final TeleTanPool teleTanPool;
 
   private final Pattern teleTanPattern;
 
@@ -64,15 +93,21 @@ public class TanService {
    * @param verificationApplicationConfig the {@link VerificationApplicationConfig} with needed tan configurations
    * @param tanRepository the {@link VerificationTanRepository} where tans are queried and inserted
    * @param hashingService the {@link HashingService} implementation
+   * @param teleTanRateLimiter the {@link TeleTanRateLimiter} which counts the created teleTANs
+   * @param teleTanPool the {@link TeleTanPool} with pre-generated teleTANs
    */
   public TanService(
     @NonNull VerificationApplicationConfig verificationApplicationConfig,
     @NonNull VerificationTanRepository tanRepository,
-    @NonNull HashingService hashingService
+    @NonNull HashingService hashingService,
+    @NonNull TeleTanRateLimiter teleTanRateLimiter,
+    @NonNull TeleTanPool teleTanPool
   ) {
     this.verificationApplicationConfig = verificationApplicationConfig;
     this.tanRepository = tanRepository;
     this.hashingService = hashingService;
+    this.teleTanRateLimiter = teleTanRateLimiter;
+    this.teleTanPool = teleTanPool;
     this.teleTanPattern = Pattern.compile("^["
       + verificationApplicationConfig.getTan().getTele().getValid().getChars()
       + "]{"
@@ -99,6 +134,55 @@ public void deleteTan(VerificationTan tan) {
     tanRepository.delete(tan);
   }
 
+  /**
+   * Redeems a TAN, if it is valid and not redeemed yet. The TAN is deleted with a single statement, so a TAN can
+   * only be redeemed once even by concurrent requests.
+   *
+   * @param tan the TAN to redeem
+   * @return true if the TAN was redeemed
+   */
+  public boolean redeemTan(String tan) {
+    LocalDateTime now = LocalDateTime.now();
+    if (verificationApplicationConfig.getEntities().isBinaryHashes()) {
+      return tanRepository.deleteRedeemableByTanHashBinary(hashingService.digest(tan), now) > 0;
+    }
+    return tanRepository.deleteRedeemableByTanHash(hashingService.hash(tan), now) > 0;
+  }
+
+  /**
+   * Redeems a batch of TANs with one lookup and one delete. Each TAN is redeemed like {@link #redeemTan(String)};
+   * a TAN which occurs more than once in the batch is only redeemed once.
+   *
+   * @param tans the TANs to redeem
+   * @return the verification status of each TAN in the order of the given TANs
+   */
+  @Transactional
+  public List<TanVerificationStatus> redeemTans(List<String> tans) {
+    List<String> tanHashes = tans.stream().map(hashingService::hash).collect(Collectors.toList());
+    LocalDateTime now = LocalDateTime.now();
+    List<VerificationTan> found = verificationApplicationConfig.getEntities().isBinaryHashes()
+      ? tanRepository.findByTanHashBinaryIn(tans.stream().map(hashingService::digest).collect(Collectors.toList()))
+      : tanRepository.findByTanHashIn(new HashSet<>(tanHashes));
+    Map<String, VerificationTan> redeemable = found.stream()
+      .filter(t -> t.canBeRedeemed(now))
+      .collect(Collectors.toMap(VerificationTan::getTanHash, Function.identity(), (first, second) -> first));
+    List<TanVerificationStatus> results = new ArrayList<>(tanHashes.size());
+    List<Long> redeemedIds = new ArrayList<>(redeemable.size());
+    for (String tanHash : tanHashes) {
+      VerificationTan tan = redeemable.remove(tanHash);
+      if (tan != null) {
+        redeemedIds.add(tan.getId());
+        results.add(TanVerificationStatus.VERIFIED);
+      } else {
+        results.add(TanVerificationStatus.INVALID);
+      }
+    }
+    if (!redeemedIds.isEmpty()) {
+      tanRepository.deleteByIdIn(redeemedIds);
+    }
+    return results;
+  }
+
   /**
    * Check teleTAN syntax constraints.
    *
@@ -117,45 +201,77 @@ private boolean syntaxTeleTanVerification(String teleTan) {
    * @return is teleTAN verified
    */
   public boolean verifyTeleTan(String teleTan) {
-    boolean verified = false;
-    if (syntaxTeleTanVerification(teleTan)) {
-      Optional<VerificationTan> teleTanEntity = getEntityByTan(teleTan);
-      if (teleTanEntity.isPresent() && teleTanEntity.get().canBeRedeemed(LocalDateTime.now())) {
-        verified = true;
-      } else {
-        log.warn("The teleTAN is unknown, expired or already redeemed.");
-      }
-    } else {
+    return getTeleTanVerification(teleTan).isVerified();
+  }
+
+  /**
+   * Verifies the tele transaction number (teleTAN) with a single hash and a single lookup and returns the hash and
+   * the entity with the outcome.
+   *
+   * @param teleTan the teleTAN to verify
+   * @return the teleTAN verification
+   */
+  public TeleTanVerification getTeleTanVerification(String teleTan) {
+    if (!syntaxTeleTanVerification(teleTan)) {
       log.warn("The teleTAN is not valid to the syntax constraints.");
+      return new TeleTanVerification(teleTan, null, null, false);
     }
-    return verified;
+    String teleTanHash = hashingService.hash(teleTan);
+    Optional<VerificationTan> teleTanEntity = getEntityByTanHash(teleTanHash);
+    boolean verified = teleTanEntity.isPresent() && teleTanEntity.get().canBeRedeemed(LocalDateTime.now());
+    if (!verified) {
+      log.warn("The teleTAN is unknown, expired or already redeemed.");
+    }
+    return new TeleTanVerification(teleTan, teleTanHash, teleTanEntity.orElse(null), verified);
   }
 
   /**
-   * Returns the a Valid TAN String.
+   * Returns the a random TAN String. The TAN is a version 4 UUID whose randomness is drawn from a generator of the
+   * current thread, so concurrent requests do not contend for a shared generator.
    *
-   * @return a Valid TAN String
+   * @return a random TAN String
    */
   private String generateValidTan() {
-    boolean validTan = false;
-    String newTan = "";
-    while (!validTan) {
-      newTan = UUID.randomUUID().toString();
-      validTan = checkTanNotExist(newTan);
-    }
-    return newTan;
+    byte[] randomBytes = new byte[16];
+    NUMBER_GENERATOR.get().nextBytes(randomBytes);
+    randomBytes[6] = (byte) ((randomBytes[6] & 0x0f) | 0x40);
+    randomBytes[8] = (byte) ((randomBytes[8] & 0x3f) | 0x80);
+    ByteBuffer buffer = ByteBuffer.wrap(randomBytes);
+    return new UUID(buffer.getLong(), buffer.getLong()).toString();
   }
 
   /**
-   * This method generates a {@link VerificationTan} - entity and saves it.
+   * Inserts a candidate. The unique index on the tan hash detects collisions with an existing TAN, in which case the
+   * insert is retried with the next candidate. The partitioned tan table cannot have this index, because a unique
+   * index of a partitioned table has to include the partition key, so the candidates are looked up before the insert
+   * in that case.
    *
-   * @param tan     the TAN
-   * @param tanType the TAN type
-   * @return the persisted TAN
+   * @param candidates supplies the candidates
+   * @param tanHash    returns the tan hash of a candidate
+   * @param insert     inserts the entities of a candidate
+   * @return the inserted candidate
    */
-  private VerificationTan persistTan(String tan, TanType tanType, TanSourceOfTrust sourceOfTrust) {
-    VerificationTan newTan = generateVerificationTan(tan, tanType, sourceOfTrust);
-    return tanRepository.save(newTan);
+  private <T> T insertUnique(Supplier<T> candidates, Function<T, String> tanHash, Consumer<T> insert) {
+    boolean partitioned = verificationApplicationConfig.getEntities().getCleanup().isPartitioned();
+    for (int attempt = 1; ; attempt++) {
+      T candidate = candidates.get();
+      if (partitioned && tanRepository.existsByTanHash(tanHash.apply(candidate))) {
+        if (attempt >= MAX_INSERT_ATTEMPTS) {
+          throw new IllegalStateException("No unique TAN found after " + attempt + " attempts.");
+        }
+        log.warn("The generated TAN already exists, retrying with a new TAN.");
+        continue;
+      }
+      try {
+        insert.accept(candidate);
+        return candidate;
+      } catch (DataIntegrityViolationException e) {
+        if (attempt >= MAX_INSERT_ATTEMPTS || !UniqueViolations.isUniqueViolation(e)) {
+          throw e;
+        }
+        log.warn("The generated TAN already exists, retrying with a new TAN.");
+      }
+    }
   }
 
   /**
@@ -164,16 +280,7 @@ private VerificationTan persistTan(String tan, TanType tanType, TanSourceOfTrust
    * @return a new teleTAN
    */
   public String generateTeleTan() {
-    final int length = verificationApplicationConfig.getTan().getTele().getValid().getLength();
-    final String chars = verificationApplicationConfig.getTan().getTele().getValid().getChars();
-    String teletan = IntStream.range(0, length)
-      .mapToObj(i -> chars.charAt(Holder.NUMBER_GENERATOR.nextInt(chars.length())))
-      .collect(Collector.of(
-        StringBuilder::new,
-        StringBuilder::append,
-        StringBuilder::append,
-        StringBuilder::toString));
-    return teletan + hashingService.getCheckDigit(teletan);
+    return teleTanPool.generateTeleTan();
   }
 
   /**
@@ -203,9 +310,11 @@ public boolean checkTanNotExist(String tan) {
    * @return a valid teleTAN
    */
   public String generateVerificationTeleTan() {
-    String teleTan = generateTeleTan();
-    persistTan(teleTan, TanType.TELETAN, TanSourceOfTrust.TELETAN);
-    return teleTan;
+    TeleTanPool.Candidate teleTan = insertUnique(teleTanPool::take, TeleTanPool.Candidate::getTeleTanHash,
+      candidate -> tanRepository.save(
+        createVerificationTan(candidate.getTeleTanHash(), TanType.TELETAN, TanSourceOfTrust.TELETAN)));
+    teleTanRateLimiter.record();
+    return teleTan.getTeleTan();
   }
 
   /**
@@ -215,9 +324,7 @@ public String generateVerificationTeleTan() {
    * @return a valid tan with given source of Trust
    */
   public String generateVerificationTan(TanSourceOfTrust sourceOfTrust) {
-    String tan = generateValidTan();
-    persistTan(tan, TanType.TAN, sourceOfTrust);
-    return tan;
+    return insertTan(this::generateValidTan, sourceOfTrust);
   }
 
   /**
@@ -228,6 +335,10 @@ public String generateVerificationTan(TanSourceOfTrust sourceOfTrust) {
    * @return Tan object
    */
   public VerificationTan generateVerificationTan(String tan, TanType tanType, TanSourceOfTrust sourceOfTrust) {
+    return createVerificationTan(hashingService.hash(tan), tanType, sourceOfTrust);
+  }
+
+  private VerificationTan createVerificationTan(String tanHash, TanType tanType, TanSourceOfTrust sourceOfTrust) {
     LocalDateTime from = LocalDateTime.now();
     LocalDateTime until;
     int tanValidInDays = verificationApplicationConfig.getTan().getValid().getDays();
@@ -239,7 +350,7 @@ public VerificationTan generateVerificationTan(String tan, TanType tanType, TanS
     }
 
     VerificationTan verificationTan = new VerificationTan();
-    verificationTan.setTanHash(hashingService.hash(tan));
+    verificationTan.setTanHash(tanHash);
     verificationTan.setValidFrom(from);
     verificationTan.setValidUntil(until);
     verificationTan.setSourceOfTrust(sourceOfTrust);
@@ -250,6 +361,49 @@ public VerificationTan generateVerificationTan(String tan, TanType tanType, TanS
     return verificationTan;
   }
 
+  /**
+   * This Method generates valid TANs and persists them with batched inserts. Returns the generated TANs.
+   *
+   * @param count         the number of TANs to generate
+   * @param sourceOfTrust sets the source of Trust for the Tans
+   * @return valid tans with given source of Trust
+   */
+  public List<String> generateVerificationTans(int count, TanSourceOfTrust sourceOfTrust) {
+    return insertTans(this::generateValidTan, count, sourceOfTrust);
+  }
+
+  /**
+   * Inserts a TAN of the candidates, see {@link #insertUnique(Supplier, Function, Consumer)}.
+   */
+  String insertTan(Supplier<String> candidates, TanSourceOfTrust sourceOfTrust) {
+    return insertUnique(candidates, hashingService::hash,
+      tan -> tanRepository.save(generateVerificationTan(tan, TanType.TAN, sourceOfTrust)));
+  }
+
+  /**
+   * Inserts count TANs of the candidates with one saveAll, which Hibernate sends as JDBC batches. The saveAll runs in
+   * a transaction of its own, so if a TAN already exists, no TAN of the batch is inserted and the TANs are inserted
+   * one by one with new candidates instead. The partitioned tan table has no unique index to detect an existing TAN,
+   * so the TANs are inserted one by one in that case.
+   */
+  List<String> insertTans(Supplier<String> candidates, int count, TanSourceOfTrust sourceOfTrust) {
+    if (!verificationApplicationConfig.getEntities().getCleanup().isPartitioned()) {
+      List<String> tans = Stream.generate(candidates).limit(count).collect(Collectors.toList());
+      try {
+        tanRepository.saveAll(tans.stream()
+          .map(tan -> generateVerificationTan(tan, TanType.TAN, sourceOfTrust))
+          .collect(Collectors.toList()));
+        return tans;
+      } catch (DataIntegrityViolationException e) {
+        if (!UniqueViolations.isUniqueViolation(e)) {
+          throw e;
+        }
+        log.warn("A generated TAN already exists, inserting the TANs one by one.");
+      }
+    }
+    return Stream.generate(() -> insertTan(candidates, sourceOfTrust)).limit(count).collect(Collectors.toList());
+  }
+
   /**
    * Get existing VerificationTan by TAN from {@link VerificationTanRepository}.
    *
@@ -258,9 +412,19 @@ public VerificationTan generateVerificationTan(String tan, TanType tanType, TanS
    */
   public Optional<VerificationTan> getEntityByTan(String tan) {
     log.info("Start getEntityByTan.");
+    if (verificationApplicationConfig.getEntities().isBinaryHashes()) {
+      return tanRepository.findByTanHashBinary(hashingService.digest(tan));
+    }
     return tanRepository.findByTanHash(hashingService.hash(tan));
   }
 
+  private Optional<VerificationTan> getEntityByTanHash(String tanHash) {
+    if (verificationApplicationConfig.getEntities().isBinaryHashes()) {
+      return tanRepository.findByTanHashBinary(HashDigests.fromHex(tanHash));
+    }
+    return tanRepository.findByTanHash(tanHash);
+  }
+
   /**
    * Checks whether the rate limit for new TeleTans is not exceeded.
    *
@@ -272,8 +436,7 @@ public boolean isTeleTanRateLimitNotExceeded() {
     int thresholdTans = thresholdInPercent * maxNumberOfTans / 100;
     int timeWindow = verificationApplicationConfig.getTan().getTele().getRateLimiting().getSeconds();
 
-    LocalDateTime timestamp = LocalDateTime.now().minusSeconds(timeWindow);
-    int countedTans = tanRepository.countByCreatedAtIsAfterAndTypeIs(timestamp, TanType.TELETAN);
+    int countedTans = teleTanRateLimiter.count();
 
     boolean result = countedTans < maxNumberOfTans;
 
@@ -286,13 +449,4 @@ public boolean isTeleTanRateLimitNotExceeded() {
 
     return result;
   }
-
-  /*
-   * The random number generator used by this class to create random
-   * based UUIDs. In a holder class to defer initialization until needed.
-   */
-  private static class Holder {
-
-    static final SecureRandom NUMBER_GENERATOR = new SecureRandom();
-  }
 }
@@ -0,0 +1,189 @@
+/*
+ * Corona-Warn-App / cwa-verification
+ *
+ * (C) 2020, T-Systems International GmbH
+ *
+ * Deutsche Telekom AG and all other contributors /
+ * copyright owners license this file to you under the Apache
+ * License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package app.coronawarn.verification.service;
+
+import app.coronawarn.verification.config.VerificationApplicationConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.security.SecureRandom;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collector;
+import java.util.stream.IntStream;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * This class holds a bounded pool of pre-generated teleTANs with their check digits and hashes.
+ * A background worker refills the pool, when it falls below the low watermark, so the teleTAN request does not need
+ * to generate and hash the teleTAN itself. If the pool is empty, the teleTAN is generated on the request thread.
+ */
+@Slf4j
+@Component
+public class TeleTanPool {
+
+  private static final String POOL_SIZE_GAUGE_NAME = "verification_teletan_pool.size";
+  private static final String POOL_MISSES_COUNTER_NAME = "verification_teletan_pool.misses";
+
+  private final VerificationApplicationConfig.Tan.Tele teleConfig;
+  private final HashingService hashingService;
+  private final BlockingQueue<Candidate> pool;
+  private final ExecutorService refillExecutor;
+  private final AtomicBoolean refilling = new AtomicBoolean();
+  private final Counter misses;
+
+  /**
+   * Constructor for the TeleTanPool that also registers the pool metrics.
+   *
+   * @param verificationApplicationConfig the {@link VerificationApplicationConfig} with the teleTAN configuration
+   * @param hashingService the {@link HashingService} implementation
+   * @param meterRegistry the {@link MeterRegistry} for the pool metrics
+   */
+  public TeleTanPool(
+    VerificationApplicationConfig verificationApplicationConfig,
+    HashingService hashingService,
+    MeterRegistry meterRegistry) {
+    this.teleConfig = verificationApplicationConfig.getTan().getTele();
+    this.hashingService = hashingService;
+    this.pool = new ArrayBlockingQueue<>(Math.max(1, teleConfig.getPool().getSize()));
+    this.refillExecutor = Executors.newSingleThreadExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "teletan-pool-refill");
+      thread.setDaemon(true);
+      return thread;
+    });
+    Gauge.builder(POOL_SIZE_GAUGE_NAME, pool, BlockingQueue::size)
+      .description("Pre-generated teleTANs in the pool.")
+      .register(meterRegistry);
+    this.misses = Counter.builder(POOL_MISSES_COUNTER_NAME)
+      .description("TeleTAN requests which found the pool empty.")
+      .register(meterRegistry);
+  }
+
+  /**
+   * Fills the pool initially.
+   */
+  @PostConstruct
+  public void init() {
+    triggerRefill();
+  }
+
+  /**
+   * Stops the refill worker and drains the pool.
+   */
+  @PreDestroy
+  public void shutdown() {
+    refillExecutor.shutdownNow();
+    pool.clear();
+    log.info("The teleTAN pool is drained.");
+  }
+
+  /**
+   * Takes a pre-generated teleTAN from the pool or generates one, if the pool is empty or disabled. Only an empty
+   * pool counts as a miss.
+   *
+   * @return a teleTAN with its hash
+   */
+  public Candidate take() {
+    if (!teleConfig.getPool().isEnabled()) {
+      return generate();
+    }
+    Candidate candidate = pool.poll();
+    if (pool.size() < teleConfig.getPool().getLowWatermark()) {
+      triggerRefill();
+    }
+    if (candidate == null) {
+      misses.increment();
+      candidate = generate();
+    }
+    return candidate;
+  }
+
+  /**
+   * Returns the a new valid teleTAN String.
+   *
+   * @return a new teleTAN
+   */
+  public String generateTeleTan() {
+    final int length = teleConfig.getValid().getLength();
+    final String chars = teleConfig.getValid().getChars();
+    String teletan = IntStream.range(0, length)
+      .mapToObj(i -> chars.charAt(Holder.NUMBER_GENERATOR.nextInt(chars.length())))
+      .collect(Collector.of(
+        StringBuilder::new,
+        StringBuilder::append,
+        StringBuilder::append,
+        StringBuilder::toString));
+    return teletan + hashingService.getCheckDigit(teletan);
+  }
+
+  private Candidate generate() {
+    String teleTan = generateTeleTan();
+    return new Candidate(teleTan, hashingService.hash(teleTan));
+  }
+
+  private void triggerRefill() {
+    if (teleConfig.getPool().isEnabled() && !refillExecutor.isShutdown() && refilling.compareAndSet(false, true)) {
+      refillExecutor.execute(() -> {
+        try {
+          while (!Thread.currentThread().isInterrupted() && pool.offer(generate())) {
+            // refill until the pool is full
+          }
+        } finally {
+          refilling.set(false);
+        }
+        // a take may have found the refill still running after its last offer
+        if (pool.size() < teleConfig.getPool().getLowWatermark()) {
+          triggerRefill();
+        }
+      });
+    }
+  }
+
+  /**
+   * A pre-generated teleTAN with its hash.
+   */
+  @Getter
+  @RequiredArgsConstructor
+  public static class Candidate {
+
+    private final String teleTan;
+    private final String teleTanHash;
+  }
+
+  /*
+   * The random number generator used by this class to create random
+   * teleTANs. In a holder class to defer initialization until needed.
+   */
+  private static class Holder {
+
+    static final SecureRandom NUMBER_GENERATOR = new SecureRandom();
+  }
+}
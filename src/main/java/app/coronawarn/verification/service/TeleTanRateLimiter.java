@@ -0,0 +1,137 @@
+/*
+ * Corona-Warn-App / cwa-verification
+ *
+ * (C) 2020, T-Systems International GmbH
+ *
+ * Deutsche Telekom AG and all other contributors /
+ * copyright owners license this file to you under the Apache
+ * License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package app.coronawarn.verification.service;
+
+import app.coronawarn.verification.config.VerificationApplicationConfig;
+import app.coronawarn.verification.model.TanType;
+import app.coronawarn.verification.repository.VerificationTanRepository;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import javax.annotation.PostConstruct;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * This class counts the created teleTANs within the rate limiting time window.
+ * The time window is split into a fixed number of buckets, so the counter works without a database query. It is
+ * seeded from the database at startup. If several instances share the rate limit, the counting is delegated to the
+ * database, which is the store all instances share.
+ */
+@Slf4j
+@RequiredArgsConstructor
+@Component
+public class TeleTanRateLimiter {
+
+  private static final int BUCKETS = 60;
+
+  @NonNull
+  private final VerificationApplicationConfig verificationApplicationConfig;
+
+  @NonNull
+  private final VerificationTanRepository tanRepository;
+
+  // one more bucket than the time window needs, so the partly expired oldest bucket is still counted
+  private final long[] bucketIds = new long[BUCKETS + 1];
+  private final int[] bucketCounts = new int[BUCKETS + 1];
+  private long bucketMillis;
+
+  /**
+   * Seeds the buckets with the teleTANs of the database, which were created within the time window.
+   */
+  @PostConstruct
+  public synchronized void seed() {
+    bucketMillis = getBucketMillis();
+    Arrays.fill(bucketIds, -1);
+    Arrays.fill(bucketCounts, 0);
+    if (isShared()) {
+      return;
+    }
+    LocalDateTime after = LocalDateTime.now().minusSeconds(getRateLimiting().getSeconds());
+    tanRepository.findCreatedAtByCreatedAtIsAfterAndTypeIs(after, TanType.TELETAN)
+      .forEach(createdAt -> add(createdAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()));
+    log.info("The teleTAN rate limiter is seeded.");
+  }
+
+  /**
+   * Records a newly created teleTAN.
+   */
+  public synchronized void record() {
+    if (!isShared()) {
+      checkBucketSize();
+      add(System.currentTimeMillis());
+    }
+  }
+
+  /**
+   * Counts the teleTANs, which were created within the time window.
+   *
+   * @return number of teleTANs in the time window
+   */
+  public synchronized int count() {
+    if (isShared()) {
+      LocalDateTime after = LocalDateTime.now().minusSeconds(getRateLimiting().getSeconds());
+      return tanRepository.countByCreatedAtIsAfterAndTypeIs(after, TanType.TELETAN);
+    }
+    checkBucketSize();
+    long currentId = System.currentTimeMillis() / bucketMillis;
+    int count = 0;
+    for (int i = 0; i < bucketIds.length; i++) {
+      if (bucketIds[i] >= currentId - BUCKETS) {
+        count += bucketCounts[i];
+      }
+    }
+    return count;
+  }
+
+  private void add(long timestamp) {
+    long id = timestamp / bucketMillis;
+    int index = (int) (id % bucketIds.length);
+    if (bucketIds[index] != id) {
+      bucketIds[index] = id;
+      bucketCounts[index] = 0;
+    }
+    bucketCounts[index]++;
+  }
+
+  private void checkBucketSize() {
+    if (bucketMillis != getBucketMillis()) {
+      log.info("The teleTAN rate limiting time window has changed.");
+      seed();
+    }
+  }
+
+  private long getBucketMillis() {
+    return Math.max(1, getRateLimiting().getSeconds() * 1000L / BUCKETS);
+  }
+
+  private boolean isShared() {
+    return getRateLimiting().isShared();
+  }
+
+  private VerificationApplicationConfig.Tan.Tele.RateLimiting getRateLimiting() {
+    return verificationApplicationConfig.getTan().getTele().getRateLimiting();
+  }
+}
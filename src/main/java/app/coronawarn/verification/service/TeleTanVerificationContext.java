@@ -0,0 +1,61 @@
+/*
+ * Corona-Warn-App / cwa-verification
+ *
+ * (C) 2020, T-Systems International GmbH
+ *
+ * Deutsche Telekom AG and all other contributors /
+ * copyright owners license this file to you under the Apache
+ * License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package app.coronawarn.verification.service;
+
+import app.coronawarn.verification.model.TeleTanVerification;
+import java.util.Optional;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.annotation.RequestScope;
+
+/**
+ * This class carries the {@link TeleTanVerification} of the registration token request validation to the
+ * controller of the same request.
+ */
+@Component
+@RequestScope
+public class TeleTanVerificationContext {
+
+  private TeleTanVerification verification;
+
+  /**
+   * Stores the verification of the current request.
+   *
+   * @param verification the teleTAN verification
+   */
+  public void setVerification(TeleTanVerification verification) {
+    this.verification = verification;
+  }
+
+  /**
+   * Returns the verification of the teleTAN, if it was verified in the current request.
+   *
+   * @param teleTan the teleTAN
+   * @return the teleTAN verification or empty
+   */
+  public Optional<TeleTanVerification> getVerification(String teleTan) {
+    if (verification == null || !verification.getTeleTan().equals(teleTan)) {
+      return Optional.empty();
+    }
+    return Optional.of(verification);
+  }
+}
@@ -0,0 +1,200 @@
+/*
+ * Corona-Warn-App / cwa-verification
+ *
+ * (C) 2020, T-Systems International GmbH
+ *
+ * Deutsche Telekom AG and all other contributors /
+ * copyright owners license this file to you under the Apache
+ * License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package app.coronawarn.verification.service;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import app.coronawarn.verification.config.VerificationApplicationConfig;
+import app.coronawarn.verification.domain.VerificationTestResultAck;
+import app.coronawarn.verification.model.MobileTestResultRequest;
+import app.coronawarn.verification.repository.VerificationTestResultAckRepository;
+import feign.FeignException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * This class forwards the acks of the test results to the test result server. The acks are fire-and-forget for the
+ * app, so they are stored in the test_result_ack table and answered at once. A scheduled flush forwards the due acks
+ * in batches and retries failed acks with an exponential backoff. Repeated acks of the same test and date patient
+ * infectious are coalesced into one stored ack.
+ */
+@Slf4j
+@Component
+public class TestResultAckService {
+
+  private static final String QUEUE_DEPTH_GAUGE_NAME = "verification_testresult_ack.queue_depth";
+  private static final String FLUSH_DURATION_TIMER_NAME = "verification_testresult_ack.flush_duration";
+  private static final String ACKS_COUNTER_NAME = "verification_testresult_ack.acks";
+  private static final String RESULT_TAG = "result";
+
+  private final VerificationApplicationConfig.TestResultAck ackConfig;
+  private final VerificationTestResultAckRepository ackRepository;
+  private final TestResultServerService testResultServerService;
+  private final AtomicLong queueDepth = new AtomicLong();
+  private final Timer flushDuration;
+  private final Counter coalesced;
+  private final Counter forwarded;
+  private final Counter retried;
+  private final Counter dropped;
+
+  /**
+   * Constructor for the TestResultAckService that also registers the ack metrics.
+   *
+   * @param applicationConfig the {@link VerificationApplicationConfig} with the ack configuration
+   * @param ackRepository the {@link VerificationTestResultAckRepository} of the stored acks
+   * @param testResultServerService the {@link TestResultServerService} to forward the acks
+   * @param meterRegistry the {@link MeterRegistry} for the ack metrics
+   */
+  public TestResultAckService(
+    VerificationApplicationConfig applicationConfig,
+    VerificationTestResultAckRepository ackRepository,
+    TestResultServerService testResultServerService,
+    MeterRegistry meterRegistry) {
+    this.ackConfig = applicationConfig.getTestResultAck();
+    this.ackRepository = ackRepository;
+    this.testResultServerService = testResultServerService;
+    Gauge.builder(QUEUE_DEPTH_GAUGE_NAME, queueDepth, AtomicLong::get)
+      .description("Due acks found by the last flush.")
+      .register(meterRegistry);
+    this.flushDuration = Timer.builder(FLUSH_DURATION_TIMER_NAME)
+      .description("Duration of a flush of the stored acks.")
+      .register(meterRegistry);
+    this.coalesced = ackCounter("coalesced", meterRegistry);
+    this.forwarded = ackCounter("forwarded", meterRegistry);
+    this.retried = ackCounter("retried", meterRegistry);
+    this.dropped = ackCounter("dropped", meterRegistry);
+  }
+
+  private static Counter ackCounter(String result, MeterRegistry meterRegistry) {
+    return Counter.builder(ACKS_COUNTER_NAME)
+      .tag(RESULT_TAG, result)
+      .description("Acks of test results by result.")
+      .register(meterRegistry);
+  }
+
+  /**
+   * Acknowledges a test result. If the ack queue is enabled, the ack is stored and forwarded later, otherwise it is
+   * forwarded at once.
+   *
+   * @param mobileTestResultRequest the test of the ack
+   * @return the response for the app
+   */
+  public ResponseEntity<Void> ackTestResult(MobileTestResultRequest mobileTestResultRequest) {
+    if (!ackConfig.isEnabled()) {
+      return testResultServerService.ackTestResult(mobileTestResultRequest);
+    }
+    LocalDateTime now = LocalDateTime.now();
+    try {
+      ackRepository.save(new VerificationTestResultAck(null, now, mobileTestResultRequest.getMobileTestId(),
+        mobileTestResultRequest.getDatePatientInfectious(), 0, now));
+    } catch (DataIntegrityViolationException e) {
+      if (!UniqueViolations.isUniqueViolation(e)) {
+        throw e;
+      }
+      coalesced.increment();
+    }
+    return ResponseEntity.noContent().build();
+  }
+
+  /**
+   * Forwards the due acks in batches, until a batch is not full or an ack fails.
+   */
+  @Scheduled(
+    fixedDelayString = "${test-result-ack.flush-rate}"
+  )
+  public void flush() {
+    if (!ackConfig.isEnabled()) {
+      return;
+    }
+    long start = System.nanoTime();
+    List<VerificationTestResultAck> batch;
+    boolean failed = false;
+    long due = 0;
+    do {
+      batch = ackRepository.findByNextAttemptAtLessThanEqualOrderByNextAttemptAt(LocalDateTime.now(),
+        PageRequest.of(0, ackConfig.getBatchSize()));
+      due += batch.size();
+      for (VerificationTestResultAck ack : batch) {
+        failed |= !forward(ack);
+      }
+    } while (!failed && batch.size() >= ackConfig.getBatchSize());
+    queueDepth.set(due);
+    flushDuration.record(System.nanoTime() - start, NANOSECONDS);
+  }
+
+  /**
+   * Forwards a due ack, which is claimed first, so it is forwarded by one instance only.
+   *
+   * @return false if the ack failed and is retried later
+   */
+  private boolean forward(VerificationTestResultAck ack) {
+    int attempts = ack.getAttempts() + 1;
+    if (ackRepository.claim(ack.getId(), ack.getNextAttemptAt(), attempts, getRetryAt(attempts)) == 0) {
+      return true;
+    }
+    try {
+      testResultServerService.ackTestResult(
+        new MobileTestResultRequest(ack.getMobileTestId(), ack.getDatePatientInfectious()));
+      forwarded.increment();
+    } catch (FeignException e) {
+      if (e.status() < 400 || e.status() >= 500) {
+        return retry(ack, attempts, e);
+      }
+      log.warn("The ack was rejected by the test result server with status {}.", e.status());
+      dropped.increment();
+    } catch (RuntimeException e) {
+      return retry(ack, attempts, e);
+    }
+    ackRepository.deleteAck(ack.getId());
+    return true;
+  }
+
+  private boolean retry(VerificationTestResultAck ack, int attempts, RuntimeException e) {
+    if (attempts >= ackConfig.getMaxAttempts()) {
+      log.warn("The ack is dropped after {} failed attempts.", attempts, e);
+      dropped.increment();
+      ackRepository.deleteAck(ack.getId());
+    } else {
+      log.info("The ack failed and is retried: {}", e.getMessage());
+      retried.increment();
+    }
+    return false;
+  }
+
+  private LocalDateTime getRetryAt(int attempts) {
+    long backoff = ackConfig.getBackoff() << Math.min(attempts - 1, 30);
+    return LocalDateTime.now().plusNanos(
+      Math.min(backoff, ackConfig.getMaxBackoff()) * 1_000_000L);
+  }
+}
@@ -0,0 +1,165 @@
+/*
+ * Corona-Warn-App / cwa-verification
+ *
+ * (C) 2020, T-Systems International GmbH
+ *
+ * Deutsche Telekom AG and all other contributors /
+ * copyright owners license this file to you under the Apache
+ * License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package app.coronawarn.verification.service;
+
+import app.coronawarn.verification.config.VerificationApplicationConfig;
+import app.coronawarn.verification.model.LabTestResult;
+import app.coronawarn.verification.model.TestResult;
+import feign.FeignException;
+import feign.Request;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * This class caches the test results of the test result server by hashed GUID. Pending results are cached only
+ * shortly, because they change when the lab reports the result, final results longer. Client errors of the test
+ * result server are cached as well, so an unknown GUID does not reach the test result server on every poll, and
+ * every hit throws a new exception with the cached status and body. The cache is bounded and keeps its entries in
+ * access order, so the least recently used entry is evicted when it is full, without a scan of the entries.
+ */
+@Component
+public class TestResultCache {
+
+  private static final String CACHE_SIZE_GAUGE_NAME = "verification_testresult_cache.size";
+  private static final String CACHE_HITS_COUNTER_NAME = "verification_testresult_cache.hits";
+  private static final String CACHE_MISSES_COUNTER_NAME = "verification_testresult_cache.misses";
+  private static final String CACHE_EVICTIONS_COUNTER_NAME = "verification_testresult_cache.evictions";
+
+  private final VerificationApplicationConfig.TestResultCache cacheConfig;
+  private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private final Counter hits;
+  private final Counter misses;
+  private final Counter evictions;
+
+  /**
+   * Constructor for the TestResultCache that also registers the cache metrics.
+   *
+   * @param verificationApplicationConfig the {@link VerificationApplicationConfig} with the cache config
+   * @param meterRegistry the {@link MeterRegistry} for the cache metrics
+   */
+  public TestResultCache(VerificationApplicationConfig verificationApplicationConfig, MeterRegistry meterRegistry) {
+    this.cacheConfig = verificationApplicationConfig.getTestResultCache();
+    Gauge.builder(CACHE_SIZE_GAUGE_NAME, this, TestResultCache::size)
+      .description("Test results in the cache.")
+      .register(meterRegistry);
+    this.hits = Counter.builder(CACHE_HITS_COUNTER_NAME)
+      .description("Test result requests answered from the cache.")
+      .register(meterRegistry);
+    this.misses = Counter.builder(CACHE_MISSES_COUNTER_NAME)
+      .description("Test result requests forwarded to the test result server.")
+      .register(meterRegistry);
+    this.evictions = Counter.builder(CACHE_EVICTIONS_COUNTER_NAME)
+      .description("Test results evicted from the full cache.")
+      .register(meterRegistry);
+  }
+
+  /**
+   * Returns a copy of the cached test result for the hashed GUID or loads and caches it.
+   *
+   * @param hashedGuid the hashed GUID
+   * @param loader the loader of the test result from the test result server
+   * @return the test result
+   */
+  public TestResult get(String hashedGuid, Supplier<TestResult> loader) {
+    if (!cacheConfig.isEnabled()) {
+      return loader.get();
+    }
+    long now = System.nanoTime();
+    Entry entry;
+    synchronized (entries) {
+      entry = entries.get(hashedGuid);
+    }
+    if (entry != null && entry.isValid(now)) {
+      hits.increment();
+      return entry.getResult();
+    }
+    misses.increment();
+    try {
+      TestResult result = loader.get();
+      long ttl = LabTestResult.PENDING.equals(result.getResult())
+        ? cacheConfig.getPendingTtl() : cacheConfig.getFinalTtl();
+      put(hashedGuid, new Entry(result.copy(), null, now + TimeUnit.MILLISECONDS.toNanos(ttl)));
+      return result;
+    } catch (FeignException e) {
+      if (e.status() >= 400 && e.status() < 500) {
+        put(hashedGuid, new Entry(null, new ClientError(e.status(), e.getMessage(), e.request(), e.content()),
+          now + TimeUnit.MILLISECONDS.toNanos(cacheConfig.getErrorTtl())));
+      }
+      throw e;
+    }
+  }
+
+  private void put(String hashedGuid, Entry entry) {
+    synchronized (entries) {
+      entries.put(hashedGuid, entry);
+      Iterator<Entry> eldest = entries.values().iterator();
+      while (entries.size() > cacheConfig.getMaxSize() && eldest.hasNext()) {
+        eldest.next();
+        eldest.remove();
+        evictions.increment();
+      }
+    }
+  }
+
+  private int size() {
+    synchronized (entries) {
+      return entries.size();
+    }
+  }
+
+  @RequiredArgsConstructor
+  private static class Entry {
+
+    private final TestResult result;
+    private final ClientError error;
+    private final long expiresAt;
+
+    boolean isValid(long now) {
+      return now - expiresAt < 0;
+    }
+
+    TestResult getResult() {
+      if (error != null) {
+        throw new FeignException.FeignClientException(error.status, error.message, error.request, error.body);
+      }
+      return result.copy();
+    }
+  }
+
+  @RequiredArgsConstructor
+  private static class ClientError {
+
+    private final int status;
+    private final String message;
+    private final Request request;
+    private final byte[] body;
+  }
+}
@@ -0,0 +1,149 @@
+/*
+ * Corona-Warn-App / cwa-verification
+ *
+ * (C) 2020, T-Systems International GmbH
+ *
+ * Deutsche Telekom AG and all other contributors /
+ * copyright owners license this file to you under the Apache
+ * License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package app.coronawarn.verification.service;
+
+import app.coronawarn.verification.config.VerificationApplicationConfig;
+import app.coronawarn.verification.exception.VerificationServerException;
+import feign.FeignException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+/**
+ * This class guards the calls to the test result server with a {@link CircuitBreaker} and a bulkhead per operation.
+ * While the test result server fails, calls are rejected at once instead of blocking request threads until the read
+ * timeout, and a slow operation can only occupy its own bulkhead.
+ */
+@Slf4j
+@Component
+public class TestResultServerGuard {
+
+  public static final String POLL = "poll";
+  public static final String ACK = "ack";
+  public static final String RESULT = "result";
+
+  private static final String BREAKER_STATE_GAUGE_NAME = "verification_testresult_client.breaker_state";
+  private static final String REJECTED_COUNTER_NAME = "verification_testresult_client.rejected";
+
+  private final CircuitBreaker circuitBreaker;
+  private final Map<String, Semaphore> bulkheads = new HashMap<>();
+  private final Map<String, Counter> breakerRejections = new HashMap<>();
+  private final Map<String, Counter> bulkheadRejections = new HashMap<>();
+
+  /**
+   * Constructor for the TestResultServerGuard that also registers the breaker and rejection metrics.
+   *
+   * @param verificationApplicationConfig the {@link VerificationApplicationConfig} with the guard config
+   * @param meterRegistry the {@link MeterRegistry} for the metrics
+   */
+  public TestResultServerGuard(VerificationApplicationConfig verificationApplicationConfig,
+                               MeterRegistry meterRegistry) {
+    VerificationApplicationConfig.TestResultClient clientConfig = verificationApplicationConfig.getTestResultClient();
+    this.circuitBreaker = new CircuitBreaker(clientConfig.getFailureThreshold(), clientConfig.getOpenDuration(),
+      System::nanoTime);
+    Gauge.builder(BREAKER_STATE_GAUGE_NAME, circuitBreaker, breaker -> breaker.getState().ordinal())
+      .description("State of the test result server circuit breaker (0 closed, 1 open, 2 half open).")
+      .register(meterRegistry);
+    addBulkhead(POLL, clientConfig.getPollLimit(), meterRegistry);
+    addBulkhead(ACK, clientConfig.getAckLimit(), meterRegistry);
+    addBulkhead(RESULT, clientConfig.getResultLimit(), meterRegistry);
+  }
+
+  private void addBulkhead(String operation, int limit, MeterRegistry meterRegistry) {
+    bulkheads.put(operation, new Semaphore(limit));
+    breakerRejections.put(operation, rejectedCounter(operation, "breaker", meterRegistry));
+    bulkheadRejections.put(operation, rejectedCounter(operation, "bulkhead", meterRegistry));
+  }
+
+  private static Counter rejectedCounter(String operation, String reason, MeterRegistry meterRegistry) {
+    return Counter.builder(REJECTED_COUNTER_NAME)
+      .description("Calls to the test result server rejected without calling it.")
+      .tag("operation", operation)
+      .tag("reason", reason)
+      .register(meterRegistry);
+  }
+
+  /**
+   * Executes the call, if the breaker is not open and the bulkhead of the operation is not full.
+   *
+   * @param operation the operation, one of {@link #POLL}, {@link #ACK} or {@link #RESULT}
+   * @param call the call to the test result server
+   * @param fallback the result of a rejected call
+   * @param <T> the result of the call
+   * @return the result of the call or the fallback
+   */
+  public <T> T execute(String operation, Supplier<T> call, Supplier<T> fallback) {
+    Semaphore bulkhead = bulkheads.get(operation);
+    if (!bulkhead.tryAcquire()) {
+      bulkheadRejections.get(operation).increment();
+      return fallback.get();
+    }
+    try {
+      if (!circuitBreaker.tryAcquirePermission()) {
+        breakerRejections.get(operation).increment();
+        return fallback.get();
+      }
+      // the outcome is reported in any case, otherwise an Error of a half open probe would keep the breaker half open
+      boolean success = false;
+      try {
+        T result = call.get();
+        success = true;
+        return result;
+      } catch (FeignException e) {
+        success = e.status() >= 400 && e.status() < 500;
+        throw e;
+      } finally {
+        if (success) {
+          circuitBreaker.onSuccess();
+        } else {
+          circuitBreaker.onFailure();
+        }
+      }
+    } finally {
+      bulkhead.release();
+    }
+  }
+
+  /**
+   * Executes the call and answers rejected calls with 503.
+   *
+   * @param operation the operation, one of {@link #POLL}, {@link #ACK} or {@link #RESULT}
+   * @param call the call to the test result server
+   * @param <T> the result of the call
+   * @return the result of the call
+   */
+  public <T> T execute(String operation, Supplier<T> call) {
+    return execute(operation, call, () -> {
+      log.warn("The call to the test result server ({}) was rejected.", operation);
+      throw new VerificationServerException(HttpStatus.SERVICE_UNAVAILABLE,
+        "The test result server is not available");
+    });
+  }
+}
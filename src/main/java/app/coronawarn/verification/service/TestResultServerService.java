@@ -24,10 +24,11 @@
 
 import app.coronawarn.verification.client.TestResultServerClient;
 import app.coronawarn.verification.model.HashedGuid;
+import app.coronawarn.verification.model.LabTestResult;
 import app.coronawarn.verification.model.MobileTestResultRequest;
 import app.coronawarn.verification.model.TestResult;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.NonNull;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
@@ -36,21 +37,46 @@
  * This class represents the lab server service.
  */
 @Slf4j
-@RequiredArgsConstructor
 @Component
 public class TestResultServerService {
 
-  @NonNull
   private final TestResultServerClient testResultServerClient;
+  private final TestResultCache testResultCache;
+  private final TestResultServerGuard testResultServerGuard;
+  private final SingleFlight<MobileTestResultRequest, TestResult> pollFlights;
+  private final SingleFlight<String, TestResult> resultFlights;
 
   /**
-   * This method retrieves a test result.
+   * Constructor for the TestResultServerService.
+   *
+   * @param testResultServerClient the client of the test result server
+   * @param testResultCache the cache of the test results by hashed GUID
+   * @param testResultServerGuard the circuit breaker and bulkheads of the calls to the test result server
+   * @param meterRegistry the {@link MeterRegistry} for the coalescing metrics
+   */
+  public TestResultServerService(@NonNull TestResultServerClient testResultServerClient,
+                                 @NonNull TestResultCache testResultCache,
+                                 @NonNull TestResultServerGuard testResultServerGuard,
+                                 @NonNull MeterRegistry meterRegistry) {
+    this.testResultServerClient = testResultServerClient;
+    this.testResultCache = testResultCache;
+    this.testResultServerGuard = testResultServerGuard;
+    this.pollFlights = new SingleFlight<>("poll", meterRegistry);
+    this.resultFlights = new SingleFlight<>("result", meterRegistry);
+  }
+
+  /**
+   * This method retrieves a test result. Concurrent polls of the same test share one call to the test result server.
+   * If the test result server is not available, the result is pending, so the app polls again later.
    *
    * @param mobileTestResultRequest for retrieving a test result.
    * @return Testresult for GUID
    */
   public TestResult pollTestResult(MobileTestResultRequest mobileTestResultRequest) {
-    return testResultServerClient.pollTestResult(mobileTestResultRequest);
+    return pollFlights.execute(mobileTestResultRequest,
+      () -> testResultServerGuard.execute(TestResultServerGuard.POLL,
+        () -> testResultServerClient.pollTestResult(mobileTestResultRequest),
+        () -> new TestResult(LabTestResult.PENDING, TestResult.ResultChannel.UNKNOWN))).copy();
   }
 
   /**
@@ -60,16 +86,21 @@ public TestResult pollTestResult(MobileTestResultRequest mobileTestResultRequest
    * @return Testresult for GUID
    */
   public ResponseEntity<Void> ackTestResult(MobileTestResultRequest mobileTestResultRequest) {
-    return testResultServerClient.ackTestResult(mobileTestResultRequest);
+    return testResultServerGuard.execute(TestResultServerGuard.ACK,
+      () -> testResultServerClient.ackTestResult(mobileTestResultRequest));
   }
 
   /**
-   * This method gives an TestResult for a guid.
+   * This method gives an TestResult for a guid, from the {@link TestResultCache} if it is cached. Concurrent requests
+   * of an uncached guid share one call to the test result server.
    *
    * @param guid hashed GUID
    * @return Testresult for GUID
    */
   public TestResult result(HashedGuid guid) {
-    return testResultServerClient.result(guid);
+    return testResultCache.get(guid.getId(),
+      () -> resultFlights.execute(guid.getId(),
+        () -> testResultServerGuard.execute(TestResultServerGuard.RESULT, () -> testResultServerClient.result(guid)))
+        .copy());
   }
 }
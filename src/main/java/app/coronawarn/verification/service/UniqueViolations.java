@@ -0,0 +1,55 @@
+/*
+ * Corona-Warn-App / cwa-verification
+ *
+ * (C) 2020, T-Systems International GmbH
+ *
+ * Deutsche Telekom AG and all other contributors /
+ * copyright owners license this file to you under the Apache
+ * License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package app.coronawarn.verification.service;
+
+import java.sql.SQLException;
+import org.springframework.dao.DataIntegrityViolationException;
+
+/**
+ * This class tells the violations of a unique index apart from the other integrity violations, e.g. of a not null
+ * constraint, which are reported with the same {@link DataIntegrityViolationException}.
+ */
+final class UniqueViolations {
+
+  /**
+   * The SQL state of a unique violation, which PostgreSQL and H2 share.
+   */
+  private static final String UNIQUE_VIOLATION = "23505";
+
+  private UniqueViolations() {
+  }
+
+  /**
+   * Returns whether the integrity violation was caused by a unique index.
+   *
+   * @param e the integrity violation
+   * @return true if a unique index was violated
+   */
+  static boolean isUniqueViolation(DataIntegrityViolationException e) {
+    for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+      if (cause instanceof SQLException && UNIQUE_VIOLATION.equals(((SQLException) cause).getSQLState())) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,39 @@
+/*
+ * Corona-Warn-App / cwa-verification
+ *
+ * (C) 2020, T-Systems International GmbH
+ *
+ * Deutsche Telekom AG and all other contributors /
+ * copyright owners license this file to you under the Apache
+ * License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package app.coronawarn.verification.validator;
+
+import app.coronawarn.verification.model.MobileTestPollingRequest;
+import javax.validation.ConstraintValidator;
+import javax.validation.ConstraintValidatorContext;
+
+/**
+ * The test result polling token validator. The token is parsed by the validation, and the request keeps the parsed
+ * token for the controller.
+ */
+public class PollingTokenValidator implements ConstraintValidator<PollingTokenConstraint, MobileTestPollingRequest> {
+
+  @Override
+  public boolean isValid(MobileTestPollingRequest request, ConstraintValidatorContext context) {
+    return request.getTestResultPollingToken() == null || request.getMobileTestResultRequest() != null;
+  }
+}
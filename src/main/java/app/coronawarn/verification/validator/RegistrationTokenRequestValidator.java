@@ -23,8 +23,10 @@
 
 import app.coronawarn.verification.model.RegistrationTokenKeyType;
 import app.coronawarn.verification.model.RegistrationTokenRequest;
+import app.coronawarn.verification.model.TeleTanVerification;
 import app.coronawarn.verification.service.HashingService;
 import app.coronawarn.verification.service.TanService;
+import app.coronawarn.verification.service.TeleTanVerificationContext;
 import javax.validation.ConstraintValidator;
 import javax.validation.ConstraintValidatorContext;
 import lombok.NonNull;
@@ -52,6 +54,12 @@
   @NonNull
   private final TanService tanService;
 
+  /**
+   * The {@link TeleTanVerificationContext} which carries the teleTAN verification to the controller.
+   */
+  @NonNull
+  private final TeleTanVerificationContext teleTanVerificationContext;
+
   @Override
   public boolean isValid(RegistrationTokenRequest request, ConstraintValidatorContext arg1) {
 
@@ -63,8 +71,10 @@ public boolean isValid(RegistrationTokenRequest request, ConstraintValidatorCont
     switch (keyType) {
       case GUID:
         return hashingService.isHashValid(key);
-      case TELETAN: 
-        return tanService.verifyTeleTan(key);
+      case TELETAN:
+        TeleTanVerification verification = tanService.getTeleTanVerification(key);
+        teleTanVerificationContext.setVerification(verification);
+        return verification.isVerified();
       default: 
         return false;
     }
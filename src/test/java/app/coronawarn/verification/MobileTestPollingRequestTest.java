@@ -22,6 +22,7 @@
 package app.coronawarn.verification;
 
 import app.coronawarn.verification.model.MobileTestPollingRequest;
+import app.coronawarn.verification.model.MobileTestResultRequest;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
@@ -30,6 +31,7 @@
 import javax.validation.Validator;
 import javax.validation.ValidatorFactory;
 
+import java.time.LocalDate;
 import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -77,4 +79,38 @@ public void requestContainsCharactersInMobileTestIdPart() {
     assertThat(constraintViolations).hasSize(1);
   }
 
+  @Test
+  public void requestContainsInvalidDayOfMonth() {
+    MobileTestPollingRequest mobileTestPollingRequest = new MobileTestPollingRequest();
+    mobileTestPollingRequest.setTestResultPollingToken("123456789012345|2020-02-30");
+    Set<ConstraintViolation<MobileTestPollingRequest>> constraintViolations = validator.validate(mobileTestPollingRequest);
+    assertThat(constraintViolations).hasSize(1);
+  }
+
+  @Test
+  public void validationKeepsParsedToken() {
+    MobileTestPollingRequest mobileTestPollingRequest = new MobileTestPollingRequest("123456789012345|2020-05-04");
+    assertThat(validator.validate(mobileTestPollingRequest)).hasSize(0);
+    MobileTestResultRequest parsed = mobileTestPollingRequest.getMobileTestResultRequest();
+    assertThat(MobileTestResultRequest.fromMobileTestPollingRequest(mobileTestPollingRequest)).isSameAs(parsed);
+
+    mobileTestPollingRequest.setTestResultPollingToken("999999999999999|1999-12-31");
+    assertThat(mobileTestPollingRequest.getMobileTestResultRequest().getMobileTestId()).isEqualTo("999999999999999");
+  }
+
+  @Test
+  public void parsedTokenMatchesSplitToken() {
+    for (String token : new String[]{"123456789012345|2020-05-04", "000000000000000|2020-02-29",
+      "999999999999999|1999-12-31"}) {
+      MobileTestResultRequest request = MobileTestResultRequest.parsePollingToken(token);
+      assertThat(request.getMobileTestId()).isEqualTo(token.split("\\|")[0]);
+      assertThat(request.getDatePatientInfectious()).isEqualTo(LocalDate.parse(token.split("\\|")[1]));
+    }
+    for (String token : new String[]{"123456789012345|2019-02-29", "123456789012345|3020-05-04",
+      "123456789012345|2020-13-04", "123456789012345|2020-05-00", "123456789012345-2020-05-04",
+      "123456789012345|2020-05-041", "12345678901234a|2020-05-04", "123456789012345|2020+05-04"}) {
+      assertThat(MobileTestResultRequest.parsePollingToken(token)).isNull();
+    }
+  }
+
 }
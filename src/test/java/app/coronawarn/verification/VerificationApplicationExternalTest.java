@@ -22,15 +22,18 @@
 package app.coronawarn.verification;
 
 import app.coronawarn.verification.config.VerificationApplicationConfig;
+import app.coronawarn.verification.domain.HashDigests;
 import app.coronawarn.verification.domain.VerificationAppSession;
 import app.coronawarn.verification.model.AppSessionSourceOfTrust;
 import app.coronawarn.verification.model.HashedGuid;
 import app.coronawarn.verification.model.RegistrationToken;
 import app.coronawarn.verification.model.RegistrationTokenKeyType;
 import app.coronawarn.verification.model.RegistrationTokenRequest;
+import app.coronawarn.verification.model.TeleTanVerification;
 import app.coronawarn.verification.repository.VerificationAppSessionRepository;
 import app.coronawarn.verification.service.TanService;
 import app.coronawarn.verification.service.TestResultServerService;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 import lombok.extern.slf4j.Slf4j;
@@ -38,6 +41,7 @@
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -388,9 +392,8 @@ public void callGetRegistrationTokenByTeleTan() throws Exception {
     log.info("process callGetRegistrationTokenByTeleTan() ");
     appSessionrepository.deleteAll();
     RegistrationTokenRequest request = new RegistrationTokenRequest(TestUtils.TEST_TELE_TAN, RegistrationTokenKeyType.TELETAN);
-    given(this.tanService.verifyTeleTan(TestUtils.TEST_TELE_TAN)).willReturn(true);
-    given(this.tanService.isTeleTanValid(TestUtils.TEST_TELE_TAN)).willReturn(true);
-    given(this.tanService.getEntityByTan(TestUtils.TEST_TELE_TAN)).willReturn(Optional.of(TestUtils.getTeleTanTestData()));
+    given(this.tanService.getTeleTanVerification(TestUtils.TEST_TELE_TAN)).willReturn(new TeleTanVerification(
+      TestUtils.TEST_TELE_TAN, TestUtils.TEST_TELE_TAN_HASH, TestUtils.getTeleTanTestData(), true));
 
     MvcResult result = mockMvc.perform(post(TestUtils.PREFIX_API_VERSION + TestUtils.REGISTRATION_TOKEN_URI)
       .contentType(MediaType.APPLICATION_JSON)
@@ -420,8 +423,8 @@ public void callGetRegistrationTokenByUnknownTeleTan() throws Exception {
     log.info("process callGetRegistrationTokenByUnknownTeleTan() ");
     appSessionrepository.deleteAll();
     RegistrationTokenRequest request = new RegistrationTokenRequest(TestUtils.TEST_TELE_TAN, RegistrationTokenKeyType.TELETAN);
-    given(this.tanService.verifyTeleTan(TestUtils.TEST_TELE_TAN)).willReturn(false);
-    given(this.tanService.getEntityByTan(TestUtils.TEST_TELE_TAN)).willReturn(Optional.empty());
+    given(this.tanService.getTeleTanVerification(TestUtils.TEST_TELE_TAN)).willReturn(new TeleTanVerification(
+      TestUtils.TEST_TELE_TAN, TestUtils.TEST_TELE_TAN_HASH, null, false));
 
     mockMvc.perform(post(TestUtils.PREFIX_API_VERSION + TestUtils.REGISTRATION_TOKEN_URI)
       .header("cwa-fake", "0")
@@ -469,6 +472,74 @@ public void callGetRegistrationTokenByAlreadyExistForGUID() throws Exception {
       .andExpect(status().isBadRequest());
   }
 
+  /**
+   * Test get registration token for a guid, which already has a registration token, with the partitioned tables,
+   * which have no unique index on the hashed guid.
+   *
+   * @throws Exception if the test cannot be performed.
+   */
+  @Test
+  public void callGetRegistrationTokenByAlreadyExistForGUIDPartitioned() throws Exception {
+    log.info("process callGetRegistrationTokenByAlreadyExistForGUIDPartitioned() ");
+    TestUtils.prepareAppSessionTestData(appSessionrepository);
+    RegistrationTokenRequest request = new RegistrationTokenRequest(TestUtils.TEST_GUI_HASH, RegistrationTokenKeyType.GUID);
+
+    verificationApplicationConfig.getEntities().getCleanup().setPartitioned(true);
+    try {
+      MvcResult result = mockMvc.perform(post(TestUtils.PREFIX_API_VERSION + TestUtils.REGISTRATION_TOKEN_URI)
+        .header("cwa-fake", "0")
+        .contentType(MediaType.APPLICATION_JSON)
+        .content(TestUtils.getAsJsonFormat(request)))
+        .andReturn();
+      mockMvc.perform(asyncDispatch(result))
+        .andExpect(status().isBadRequest());
+    } finally {
+      verificationApplicationConfig.getEntities().getCleanup().setPartitioned(false);
+    }
+    assertEquals(1, appSessionrepository.count());
+  }
+
+  /**
+   * Test get registration token for a guid and a teletan, which already have a registration token, with the
+   * partitioned tables and the lookup by the binary hashes.
+   *
+   * @throws Exception if the test cannot be performed.
+   */
+  @Test
+  public void callGetRegistrationTokenByAlreadyExistPartitionedWithBinaryHashes() throws Exception {
+    log.info("process callGetRegistrationTokenByAlreadyExistPartitionedWithBinaryHashes() ");
+    appSessionrepository.deleteAll();
+    VerificationAppSession appSessionTestData = TestUtils.getAppSessionTestData();
+    appSessionTestData.setTeleTanHash(TestUtils.TEST_TELE_TAN_HASH);
+    appSessionrepository.save(appSessionTestData);
+    assertTrue(appSessionrepository.findByHashedGuidBinary(HashDigests.fromHex(TestUtils.TEST_GUI_HASH)).isPresent());
+    assertTrue(appSessionrepository.findByTeleTanHashBinary(HashDigests.fromHex(TestUtils.TEST_TELE_TAN_HASH))
+      .isPresent());
+
+    given(this.tanService.getTeleTanVerification(TestUtils.TEST_TELE_TAN)).willReturn(new TeleTanVerification(
+      TestUtils.TEST_TELE_TAN, TestUtils.TEST_TELE_TAN_HASH, TestUtils.getTeleTanTestData(), true));
+
+    verificationApplicationConfig.getEntities().getCleanup().setPartitioned(true);
+    verificationApplicationConfig.getEntities().setBinaryHashes(true);
+    try {
+      for (RegistrationTokenRequest request : Arrays.asList(
+        new RegistrationTokenRequest(TestUtils.TEST_GUI_HASH, RegistrationTokenKeyType.GUID),
+        new RegistrationTokenRequest(TestUtils.TEST_TELE_TAN, RegistrationTokenKeyType.TELETAN))) {
+        MvcResult result = mockMvc.perform(post(TestUtils.PREFIX_API_VERSION + TestUtils.REGISTRATION_TOKEN_URI)
+          .header("cwa-fake", "0")
+          .contentType(MediaType.APPLICATION_JSON)
+          .content(TestUtils.getAsJsonFormat(request)))
+          .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+          .andExpect(status().isBadRequest());
+      }
+    } finally {
+      verificationApplicationConfig.getEntities().getCleanup().setPartitioned(false);
+      verificationApplicationConfig.getEntities().setBinaryHashes(false);
+    }
+    assertEquals(1, appSessionrepository.count());
+  }
+
   /**
    * Test get registration token for a teletan, but the teletan already has a registration token.
    *
@@ -483,14 +554,17 @@ public void callGetRegistrationTokenByAlreadyExistForTeleTan() throws Exception
     appSessionTestData.setTeleTanHash(TestUtils.TEST_TELE_TAN_HASH);
     appSessionrepository.save(appSessionTestData);
 
-    given(this.tanService.verifyTeleTan(TestUtils.TEST_TELE_TAN)).willReturn(true);
+    given(this.tanService.getTeleTanVerification(TestUtils.TEST_TELE_TAN)).willReturn(new TeleTanVerification(
+      TestUtils.TEST_TELE_TAN, TestUtils.TEST_TELE_TAN_HASH, TestUtils.getTeleTanTestData(), true));
 
     RegistrationTokenRequest request = new RegistrationTokenRequest(TestUtils.TEST_TELE_TAN, RegistrationTokenKeyType.TELETAN);
 
-    mockMvc.perform(post(TestUtils.PREFIX_API_VERSION + TestUtils.REGISTRATION_TOKEN_URI)
+    MvcResult result = mockMvc.perform(post(TestUtils.PREFIX_API_VERSION + TestUtils.REGISTRATION_TOKEN_URI)
       .header("cwa-fake", "0")
       .contentType(MediaType.APPLICATION_JSON)
       .content(TestUtils.getAsJsonFormat(request)))
+      .andReturn();
+    mockMvc.perform(asyncDispatch(result))
       .andExpect(status().isBadRequest());
   }
 
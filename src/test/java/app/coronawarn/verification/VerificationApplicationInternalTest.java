@@ -24,11 +24,15 @@
 import app.coronawarn.verification.domain.VerificationTan;
 import app.coronawarn.verification.model.AuthorizationRole;
 import app.coronawarn.verification.model.Tan;
+import app.coronawarn.verification.model.TanVerificationBatchRequest;
+import app.coronawarn.verification.model.TanVerificationStatus;
 import app.coronawarn.verification.service.JwtService;
 import app.coronawarn.verification.service.TanService;
 import java.security.KeyPair;
 import java.security.KeyPairGenerator;
 import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Optional;
 import lombok.extern.slf4j.Slf4j;
 import static org.junit.Assert.assertFalse;
@@ -49,6 +53,7 @@
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 /**
@@ -131,6 +136,7 @@ public void callVerifyTAN() throws Exception {
     Optional<VerificationTan> verificationTan = this.tanService.getEntityByTan(TestUtils.TEST_TAN);
     assertFalse("Is TAN redeemed?", verificationTan
       .map(VerificationTan::isRedeemed).orElse(true));
+    given(this.tanService.redeemTan(TestUtils.TEST_TAN)).willReturn(true);
 
     mockMvc.perform(post(TestUtils.PREFIX_API_VERSION + TestUtils.TAN_VERIFICATION_URI)
       .contentType(MediaType.APPLICATION_JSON)
@@ -138,6 +144,43 @@ public void callVerifyTAN() throws Exception {
       .andExpect(status().isOk());
   }
 
+  /**
+   * Test verifyTANs in a batch.
+   *
+   * @throws Exception if the test cannot be performed.
+   */
+  @Test
+  public void callVerifyTANBatch() throws Exception {
+    log.info("process callVerifyTANBatch()");
+
+    given(this.tanService.redeemTans(Arrays.asList(TestUtils.TEST_TAN, TestUtils.TEST_TAN)))
+      .willReturn(Arrays.asList(TanVerificationStatus.VERIFIED, TanVerificationStatus.INVALID));
+
+    mockMvc.perform(post(TestUtils.PREFIX_API_VERSION + TestUtils.TAN_VERIFICATION_URI + "/batch")
+      .contentType(MediaType.APPLICATION_JSON)
+      .content(TestUtils.getAsJsonFormat(new TanVerificationBatchRequest(Arrays.asList(
+        new Tan(TestUtils.TEST_TAN, TAN_PADDING), new Tan(TestUtils.TEST_TAN, TAN_PADDING))))))
+      .andExpect(status().isOk())
+      .andExpect(jsonPath("$.results[0]").value(TanVerificationStatus.VERIFIED.ordinal()))
+      .andExpect(jsonPath("$.results[1]").value(TanVerificationStatus.INVALID.ordinal()));
+  }
+
+  /**
+   * Test verifyTANs in a batch, which exceeds the limit.
+   *
+   * @throws Exception if the test cannot be performed.
+   */
+  @Test
+  public void callVerifyTANBatchExceedsLimit() throws Exception {
+    log.info("process callVerifyTANBatchExceedsLimit()");
+
+    mockMvc.perform(post(TestUtils.PREFIX_API_VERSION + TestUtils.TAN_VERIFICATION_URI + "/batch")
+      .contentType(MediaType.APPLICATION_JSON)
+      .content(TestUtils.getAsJsonFormat(new TanVerificationBatchRequest(
+        Collections.nCopies(101, new Tan(TestUtils.TEST_TAN, TAN_PADDING))))))
+      .andExpect(status().isBadRequest());
+  }
+
   /**
    * Test verifyTAN with empty Entity.
    *
@@ -0,0 +1,161 @@
+/*
+ * Corona-Warn-App / cwa-verification
+ *
+ * (C) 2020, T-Systems International GmbH
+ *
+ * Deutsche Telekom AG and all other contributors /
+ * copyright owners license this file to you under the Apache
+ * License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package app.coronawarn.verification.service;
+
+import app.coronawarn.verification.config.VerificationApplicationConfig;
+import app.coronawarn.verification.exception.VerificationServerException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import javax.servlet.AsyncEvent;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.async.StandardServletAsyncWebRequest;
+import org.springframework.web.context.request.async.WebAsyncManager;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.context.request.async.DeferredResult;
+
+public class AsyncRequestServiceTest {
+
+  private VerificationApplicationConfig config;
+  private MeterRegistry meterRegistry;
+  private AsyncRequestService asyncRequestService;
+
+  @Before
+  public void setUp() {
+    config = new VerificationApplicationConfig();
+    config.getRequest().getAsync().setEnabled(true);
+    config.getRequest().getAsync().setThreads(2);
+    config.getRequest().getAsync().getEndpointLimits().put("limited", 1);
+    meterRegistry = new SimpleMeterRegistry();
+    asyncRequestService = new AsyncRequestService(config, meterRegistry);
+  }
+
+  @After
+  public void tearDown() {
+    asyncRequestService.shutdown();
+  }
+
+  @Test
+  public void executeOffCallingThread() throws InterruptedException {
+    Thread caller = Thread.currentThread();
+    DeferredResult<ResponseEntity<Thread>> result =
+      asyncRequestService.execute("endpoint", () -> ResponseEntity.ok(Thread.currentThread()));
+
+    ResponseEntity<?> response = (ResponseEntity<?>) await(result);
+    Assert.assertNotEquals(caller, response.getBody());
+  }
+
+  @Test
+  public void executeOnCallingThreadIfDisabled() {
+    config.getRequest().getAsync().setEnabled(false);
+    Thread caller = Thread.currentThread();
+    DeferredResult<ResponseEntity<Thread>> result =
+      asyncRequestService.execute("endpoint", () -> ResponseEntity.ok(Thread.currentThread()));
+
+    Assert.assertEquals(caller, ((ResponseEntity<?>) result.getResult()).getBody());
+  }
+
+  @Test
+  public void rejectIfEndpointLimitIsExhausted() throws InterruptedException {
+    CountDownLatch release = new CountDownLatch(1);
+    DeferredResult<ResponseEntity<Void>> blocked = asyncRequestService.execute("limited", () -> {
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return ResponseEntity.ok().build();
+    });
+
+    DeferredResult<ResponseEntity<Void>> rejected =
+      asyncRequestService.execute("limited", () -> ResponseEntity.ok().build());
+    release.countDown();
+
+    Assert.assertEquals(HttpStatus.SERVICE_UNAVAILABLE,
+      ((VerificationServerException) rejected.getResult()).getHttpStatus());
+    Assert.assertTrue(await(blocked) instanceof ResponseEntity);
+    Assert.assertEquals(1.0,
+      meterRegistry.get("verification_async.rejected").tag("endpoint", "limited").counter().count(), 0.0);
+  }
+
+  @Test
+  public void releasePermitOfQueuedRequestOnTimeout() throws Exception {
+    asyncRequestService.shutdown();
+    config.getRequest().getAsync().setThreads(1);
+    asyncRequestService = new AsyncRequestService(config, meterRegistry);
+    CountDownLatch release = new CountDownLatch(1);
+    asyncRequestService.execute("endpoint", () -> {
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return ResponseEntity.ok().build();
+    });
+
+    DeferredResult<ResponseEntity<Void>> queued =
+      asyncRequestService.execute("limited", () -> ResponseEntity.ok().build());
+    MockHttpServletRequest request = new MockHttpServletRequest();
+    request.setAsyncSupported(true);
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    StandardServletAsyncWebRequest asyncWebRequest = new StandardServletAsyncWebRequest(request, response);
+    WebAsyncManager asyncManager = WebAsyncUtils.getAsyncManager(request);
+    asyncManager.setAsyncWebRequest(asyncWebRequest);
+    asyncManager.startDeferredResultProcessing(queued);
+    asyncWebRequest.onTimeout(new AsyncEvent(new MockAsyncContext(request, response)));
+    release.countDown();
+
+    Assert.assertEquals(HttpStatus.GATEWAY_TIMEOUT,
+      ((VerificationServerException) asyncManager.getConcurrentResult()).getHttpStatus());
+    Assert.assertEquals(0.0,
+      meterRegistry.get("verification_async.in_flight").tag("endpoint", "limited").gauge().value(), 0.0);
+    Assert.assertTrue(await(asyncRequestService.execute("limited", () -> ResponseEntity.ok().build()))
+      instanceof ResponseEntity);
+  }
+
+  @Test
+  public void passExceptionsAsErrorResult() throws InterruptedException {
+    DeferredResult<ResponseEntity<Void>> result = asyncRequestService.execute("endpoint", () -> {
+      throw new VerificationServerException(HttpStatus.BAD_REQUEST, "invalid");
+    });
+
+    Assert.assertEquals(HttpStatus.BAD_REQUEST, ((VerificationServerException) await(result)).getHttpStatus());
+  }
+
+  private static Object await(DeferredResult<?> result) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (!result.hasResult() && System.nanoTime() < deadline) {
+      Thread.sleep(5);
+    }
+    return result.getResult();
+  }
+}
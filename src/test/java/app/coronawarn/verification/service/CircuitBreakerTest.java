@@ -0,0 +1,95 @@
+/*
+ * Corona-Warn-App / cwa-verification
+ *
+ * (C) 2020, T-Systems International GmbH
+ *
+ * Deutsche Telekom AG and all other contributors /
+ * copyright owners license this file to you under the Apache
+ * License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package app.coronawarn.verification.service;
+
+import app.coronawarn.verification.config.VerificationApplicationConfig;
+import app.coronawarn.verification.service.CircuitBreaker.State;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CircuitBreakerTest {
+
+  private AtomicLong clock;
+  private CircuitBreaker circuitBreaker;
+
+  @Before
+  public void setUp() {
+    clock = new AtomicLong();
+    circuitBreaker = new CircuitBreaker(3, 1000, clock::get);
+  }
+
+  @Test
+  public void opensAfterConsecutiveFailures() {
+    circuitBreaker.onFailure();
+    circuitBreaker.onFailure();
+    circuitBreaker.onSuccess();
+    circuitBreaker.onFailure();
+    circuitBreaker.onFailure();
+    Assert.assertTrue(circuitBreaker.tryAcquirePermission());
+    circuitBreaker.onFailure();
+    Assert.assertEquals(State.OPEN, circuitBreaker.getState());
+    Assert.assertFalse(circuitBreaker.tryAcquirePermission());
+  }
+
+  @Test
+  public void halfOpenProbe() {
+    for (int i = 0; i < 3; i++) {
+      circuitBreaker.onFailure();
+    }
+    clock.set(TimeUnit.MILLISECONDS.toNanos(1000));
+    Assert.assertTrue(circuitBreaker.tryAcquirePermission());
+    Assert.assertEquals(State.HALF_OPEN, circuitBreaker.getState());
+    Assert.assertFalse(circuitBreaker.tryAcquirePermission());
+    circuitBreaker.onFailure();
+    Assert.assertEquals(State.OPEN, circuitBreaker.getState());
+    Assert.assertFalse(circuitBreaker.tryAcquirePermission());
+    clock.set(TimeUnit.MILLISECONDS.toNanos(2000));
+    Assert.assertTrue(circuitBreaker.tryAcquirePermission());
+    circuitBreaker.onSuccess();
+    Assert.assertEquals(State.CLOSED, circuitBreaker.getState());
+    Assert.assertTrue(circuitBreaker.tryAcquirePermission());
+  }
+
+  @Test
+  public void guardReportsErrorOfProbeAsFailure() {
+    VerificationApplicationConfig config = new VerificationApplicationConfig();
+    config.getTestResultClient().setFailureThreshold(1);
+    config.getTestResultClient().setOpenDuration(0);
+    TestResultServerGuard guard = new TestResultServerGuard(config, new SimpleMeterRegistry());
+    Supplier<String> failure = () -> {
+      throw new IllegalStateException("failure");
+    };
+    Supplier<String> error = () -> {
+      throw new AssertionError("probe");
+    };
+
+    Assert.assertThrows(IllegalStateException.class, () -> guard.execute(TestResultServerGuard.RESULT, failure));
+    Assert.assertThrows(AssertionError.class, () -> guard.execute(TestResultServerGuard.RESULT, error));
+    Assert.assertEquals("result", guard.execute(TestResultServerGuard.RESULT, () -> "result"));
+  }
+}
@@ -22,6 +22,7 @@
 package app.coronawarn.verification.service;
 
 import app.coronawarn.verification.VerificationApplication;
+import app.coronawarn.verification.config.VerificationApplicationConfig;
 import app.coronawarn.verification.domain.VerificationAppSession;
 import app.coronawarn.verification.domain.VerificationTan;
 import app.coronawarn.verification.model.AppSessionSourceOfTrust;
@@ -63,6 +64,12 @@ public class EntitiesCleanupServiceTest {
   @Autowired
   private VerificationTanRepository tanRepository;
 
+  @Autowired
+  private EntitiesCleanupService entitiesCleanupService;
+
+  @Autowired
+  private VerificationApplicationConfig applicationConfig;
+
   @Before
   public void before() {
     appSessionRepository.deleteAll();
@@ -99,6 +106,27 @@ public void cleanupDatabase() {
     Assert.assertFalse(findTan.isPresent());
   }
 
+  @Test
+  public void cleanupDatabaseInChunks() {
+    applicationConfig.getEntities().getCleanup().setChunkSize(2);
+    applicationConfig.getEntities().getCleanup().setChunkPause(0);
+    try {
+      LocalDateTime testCreationTime = LocalDateTime.now().minus(Period.ofDays(21));
+      for (int i = 0; i < 5; i++) {
+        VerificationTan tan = getVerificationTANTestData(testCreationTime);
+        tan.setTanHash(TEST_HASHED_TAN.substring(1) + i);
+        tanRepository.save(tan);
+      }
+      VerificationTan recentTan = tanRepository.save(getVerificationTANTestData(LocalDateTime.now()));
+      entitiesCleanupService.cleanup();
+      Assert.assertEquals(1, tanRepository.count());
+      Assert.assertTrue(tanRepository.findById(recentTan.getId()).isPresent());
+    } finally {
+      applicationConfig.getEntities().getCleanup().setChunkSize(1000);
+      applicationConfig.getEntities().getCleanup().setChunkPause(100);
+    }
+  }
+
   private VerificationAppSession getAppSessionTestData(LocalDateTime testCreationTime) {
     VerificationAppSession cv = new VerificationAppSession();
     cv.setHashedGuid(TEST_GUI_HASH);
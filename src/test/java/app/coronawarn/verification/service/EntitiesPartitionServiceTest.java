@@ -0,0 +1,125 @@
+/*
+ * Corona-Warn-App / cwa-verification
+ *
+ * (C) 2020, T-Systems International GmbH
+ *
+ * Deutsche Telekom AG and all other contributors /
+ * copyright owners license this file to you under the Apache
+ * License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package app.coronawarn.verification.service;
+
+import app.coronawarn.verification.config.VerificationApplicationConfig;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class EntitiesPartitionServiceTest {
+
+  private JdbcTemplate jdbcTemplate;
+  private VerificationApplicationConfig config;
+  private EntitiesPartitionService partitionService;
+
+  @Before
+  public void setUp() {
+    jdbcTemplate = Mockito.mock(JdbcTemplate.class);
+    config = new VerificationApplicationConfig();
+    partitionService = new EntitiesPartitionService(config, jdbcTemplate);
+  }
+
+  @Test
+  public void dropExpiredPartitionsOnly() {
+    when(jdbcTemplate.queryForList(anyString(), eq(String.class), eq("tan")))
+      .thenReturn(Arrays.asList("tan_p20201001", "tan_p20201002", "tan_p20201003", "tan_default"));
+    when(jdbcTemplate.queryForList(anyString(), eq(String.class), eq("app_session")))
+      .thenReturn(Collections.singletonList("app_session_p20201001"));
+
+    int dropped = partitionService.dropPartitionsBefore(LocalDateTime.of(2020, 10, 3, 0, 0));
+
+    Assert.assertEquals(3, dropped);
+    verify(jdbcTemplate).execute("ALTER TABLE tan DETACH PARTITION tan_p20201001");
+    verify(jdbcTemplate).execute("DROP TABLE tan_p20201002");
+    verify(jdbcTemplate).execute("DROP TABLE app_session_p20201001");
+    verify(jdbcTemplate, never()).execute("DROP TABLE tan_p20201003");
+    verify(jdbcTemplate, never()).execute("DROP TABLE tan_default");
+  }
+
+  @Test
+  public void dropMigratedPartitionWithTheDayBeforeTheMigration() {
+    // the migration on 2020-10-02 moves the existing entities into tan_p20201001 ranging from MINVALUE to 2020-10-02
+    when(jdbcTemplate.queryForList(anyString(), eq(String.class), eq("tan")))
+      .thenReturn(Arrays.asList("tan_p20201001", "tan_p20201002"));
+
+    Assert.assertEquals(0, partitionService.dropPartitionsBefore(LocalDateTime.of(2020, 10, 1, 23, 59)));
+    Assert.assertEquals(1, partitionService.dropPartitionsBefore(LocalDateTime.of(2020, 10, 2, 0, 0)));
+    verify(jdbcTemplate).execute("DROP TABLE tan_p20201001");
+    verify(jdbcTemplate, never()).execute("DROP TABLE tan_p20201002");
+  }
+
+  @Test
+  public void createPartitionsOnlyIfPartitioned() {
+    partitionService.createPartitions();
+    verify(jdbcTemplate, never()).execute(anyString());
+
+    config.getEntities().getCleanup().setPartitioned(true);
+    config.getEntities().getCleanup().setPartitionsAhead(1);
+    partitionService.createPartitions();
+    verify(jdbcTemplate, Mockito.times(4)).execute(anyString());
+  }
+
+  @Test
+  public void createRemainingPartitionsIfOneFails() {
+    config.getEntities().getCleanup().setPartitioned(true);
+    config.getEntities().getCleanup().setPartitionsAhead(1);
+    doThrow(new DataIntegrityViolationException("updated partition constraint for default partition would be violated"))
+      .when(jdbcTemplate).execute(startsWith("CREATE TABLE IF NOT EXISTS tan_p"));
+
+    partitionService.createPartitions();
+    verify(jdbcTemplate, Mockito.times(4)).execute(anyString());
+  }
+
+  @Test
+  public void verifySchemaMatchesConfiguration() {
+    when(jdbcTemplate.execute(any(ConnectionCallback.class))).thenReturn("PostgreSQL");
+    when(jdbcTemplate.queryForObject(anyString(), eq(Integer.class))).thenReturn(2);
+    Assert.assertThrows(IllegalStateException.class, partitionService::verifySchema);
+    config.getEntities().getCleanup().setPartitioned(true);
+    partitionService.verifySchema();
+
+    when(jdbcTemplate.queryForObject(anyString(), eq(Integer.class))).thenReturn(0);
+    Assert.assertThrows(IllegalStateException.class, partitionService::verifySchema);
+    when(jdbcTemplate.execute(any(ConnectionCallback.class))).thenReturn("H2");
+    Assert.assertThrows(IllegalStateException.class, partitionService::verifySchema);
+    config.getEntities().getCleanup().setPartitioned(false);
+    partitionService.verifySchema();
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * Corona-Warn-App / cwa-verification
+ *
+ * (C) 2020, T-Systems International GmbH
+ *
+ * Deutsche Telekom AG and all other contributors /
+ * copyright owners license this file to you under the Apache
+ * License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package app.coronawarn.verification.service;
+
+import app.coronawarn.verification.config.VerificationApplicationConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FakeResponseTimerTest {
+
+  private VerificationApplicationConfig config;
+  private FakeResponseTimer timer;
+
+  @Before
+  public void setUp() {
+    config = new VerificationApplicationConfig();
+    config.getFakeTimer().setTickDuration(1);
+    config.getFakeTimer().setWheelSize(8);
+    config.getFakeTimer().setMaxPending(3);
+    timer = new FakeResponseTimer(config, new SimpleMeterRegistry());
+  }
+
+  @After
+  public void tearDown() {
+    timer.stop();
+  }
+
+  @Test
+  public void runTasksAfterTheirDelay() throws InterruptedException {
+    List<Integer> order = new CopyOnWriteArrayList<>();
+    CountDownLatch done = new CountDownLatch(3);
+    long start = System.nanoTime();
+
+    Assert.assertTrue(timer.schedule(() -> record(order, 3, done), 30));
+    Assert.assertTrue(timer.schedule(() -> record(order, 1, done), 0));
+    Assert.assertTrue(timer.schedule(() -> record(order, 2, done), 15));
+
+    Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+    Assert.assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(30));
+    Assert.assertEquals(List.of(1, 2, 3), order);
+    Assert.assertEquals(0, timer.getPending());
+  }
+
+  @Test
+  public void rejectTasksAboveMaxPending() {
+    for (int i = 0; i < 3; i++) {
+      Assert.assertTrue(timer.schedule(() -> { }, 60000));
+    }
+    Assert.assertFalse(timer.schedule(() -> { }, 60000));
+    Assert.assertEquals(3, timer.getPending());
+  }
+
+  @Test
+  public void runPendingTasksOnStop() throws InterruptedException {
+    CountDownLatch done = new CountDownLatch(1);
+    Assert.assertTrue(timer.schedule(done::countDown, 60000));
+
+    timer.stop();
+
+    Assert.assertTrue(done.await(1, TimeUnit.SECONDS));
+    Assert.assertFalse(timer.schedule(() -> { }, 0));
+  }
+
+  private static void record(List<Integer> order, int value, CountDownLatch done) {
+    order.add(value);
+    done.countDown();
+  }
+}
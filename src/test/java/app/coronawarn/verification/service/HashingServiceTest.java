@@ -21,6 +21,16 @@
 
 package app.coronawarn.verification.service;
 
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.junit.Test;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -61,4 +71,34 @@ public void getCheckDigit() {
     assertThat(hashingService.getCheckDigit("FE9A5MAK9").equals("H")).isTrue();
     assertThat(hashingService.getCheckDigit("FE9A5MAKW").equals("G")).isTrue();
   }
+
+  @Test
+  public void hashMatchesDigestUtils() {
+    assertThat(hashingService.hash("")).isEqualTo(DigestUtils.sha256Hex(""));
+    assertThat(hashingService.hash("R3ZNUEV")).isEqualTo(DigestUtils.sha256Hex("R3ZNUEV"));
+    assertThat(hashingService.hash("äöü-€-\uD83D\uDE00")).isEqualTo(DigestUtils.sha256Hex("äöü-€-\uD83D\uDE00"));
+    String longValue = IntStream.range(0, 100).mapToObj(String::valueOf).collect(Collectors.joining());
+    assertThat(hashingService.hash(longValue)).isEqualTo(DigestUtils.sha256Hex(longValue));
+  }
+
+  @Test
+  public void digestMatchesHash() {
+    assertThat(Hex.encodeHexString(hashingService.digest("R3ZNUEV"))).isEqualTo(hashingService.hash("R3ZNUEV"));
+  }
+
+  @Test
+  public void hashConcurrently() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      Callable<Boolean> task = () -> IntStream.range(0, 1000).mapToObj(i -> UUID.randomUUID().toString())
+        .allMatch(value -> hashingService.hash(value).equals(DigestUtils.sha256Hex(value)));
+      List<Future<Boolean>> results = executor.invokeAll(IntStream.range(0, 8).mapToObj(i -> task)
+        .collect(Collectors.toList()));
+      for (Future<Boolean> result : results) {
+        assertTrue(result.get());
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
 }
@@ -42,6 +42,7 @@
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.*;
+import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.bouncycastle.asn1.x500.X500Name;
@@ -122,6 +123,44 @@ public void tokenIsAuthorized() throws UnsupportedEncodingException, NoSuchAlgor
     Assert.assertTrue(jwtService.isAuthorized(JwtService.TOKEN_PREFIX + jwToken));
   }
 
+  /**
+   * Test that the public key is taken from the cache, with the {@link JwtService#isAuthorized(java.lang.String)}
+   * method.
+   *
+   * @throws java.io.UnsupportedEncodingException if the test cannot be performed.
+   * @throws java.security.NoSuchAlgorithmException if the test cannot be performed.
+   */
+  @Test
+  public void publicKeyIsCached() throws UnsupportedEncodingException, NoSuchAlgorithmException {
+    String jwToken = getJwtTestData(3000, AuthorizationRole.AUTH_C19_HOTLINE);
+    IamClientMock clientMock = createIamClientMock();
+    VerificationApplicationConfig config = new VerificationApplicationConfig();
+    config.getJwt().setEnabled(Boolean.TRUE);
+    jwtService = new JwtService(clientMock, config);
+    Assert.assertTrue(jwtService.isAuthorized(JwtService.TOKEN_PREFIX + jwToken));
+    Assert.assertTrue(jwtService.isAuthorized(JwtService.TOKEN_PREFIX + jwToken));
+    Assert.assertEquals(1, clientMock.getCalls());
+  }
+
+  /**
+   * Test that an unknown key id forces a refetch of the certificates, with the
+   * {@link JwtService#getPublicKey(java.lang.String)} method.
+   */
+  @Test
+  public void unknownKeyIdIsRefetched() {
+    IamClientMock clientMock = createIamClientMock();
+    VerificationApplicationConfig config = new VerificationApplicationConfig();
+    config.getJwt().setEnabled(Boolean.TRUE);
+    jwtService = new JwtService(clientMock, config);
+    Assert.assertNotNull(jwtService.getPublicKey(IamClientMock.KID));
+    Assert.assertEquals(1, clientMock.getCalls());
+    Assert.assertNull(jwtService.getPublicKey("unknown"));
+    Assert.assertEquals(2, clientMock.getCalls());
+    // the refetch is throttled
+    Assert.assertNull(jwtService.getPublicKey("unknown"));
+    Assert.assertEquals(2, clientMock.getCalls());
+  }
+
   /**
    * Test to validate an expired Token, with the
    * {@link JwtService#validateToken(java.lang.String, java.security.PublicKey)} method.
@@ -199,15 +238,21 @@ private IamClientMock createIamClientMock() {
   }
 
   public static class IamClientMock implements IamClient {
+    static final String KID = "myqmD9sUqDTcCkprIixgYUh0dooxsCYL8HKSJ6fCMxc";
+
     @Setter
     String pem;
 
+    @Getter
+    int calls;
+
     @Override
     public Certs certs() {
+      calls++;
       Certs certs = new Certs();
       List<Key> keys = new ArrayList<>();
       Key key = new Key();
-      key.setKid("myqmD9sUqDTcCkprIixgYUh0dooxsCYL8HKSJ6fCMxc");
+      key.setKid(KID);
       key.setKty("RSA");
       key.setAlg("RS256");
       key.setUse("sig");
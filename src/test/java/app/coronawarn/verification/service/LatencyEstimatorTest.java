@@ -0,0 +1,122 @@
+/*
+ * Corona-Warn-App / cwa-verification
+ *
+ * (C) 2020, T-Systems International GmbH
+ *
+ * Deutsche Telekom AG and all other contributors /
+ * copyright owners license this file to you under the Apache
+ * License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package app.coronawarn.verification.service;
+
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LatencyEstimatorTest {
+
+  @Test
+  public void movingAverage() {
+    LatencyEstimator estimator = new LatencyEstimator(10, 5, new LatencyHistogram(60000));
+    estimator.update(60);
+    Assert.assertEquals(20, estimator.getMovingAverage());
+    estimator.update(20);
+    Assert.assertEquals(20, estimator.getMovingAverage());
+  }
+
+  @Test
+  public void quantiles() {
+    LatencyEstimator estimator = new LatencyEstimator(0, 5, new LatencyHistogram(60000));
+    Assert.assertEquals(0, estimator.getValueAtQuantile(0.5));
+    for (int latency = 1; latency <= 1000; latency++) {
+      estimator.update(latency);
+    }
+    Assert.assertEquals(500, estimator.getValueAtQuantile(0.5), 500 / 32.);
+    Assert.assertEquals(950, estimator.getValueAtQuantile(0.95), 950 / 32.);
+    Assert.assertEquals(990, estimator.getValueAtQuantile(0.99), 990 / 32.);
+    Assert.assertEquals(1, estimator.getValueAtQuantile(0));
+  }
+
+  @Test
+  public void concurrentUpdatesAreNotLost() throws Exception {
+    LatencyEstimator estimator = new LatencyEstimator(0, 1, new LatencyHistogram(60000));
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      Callable<Void> task = () -> {
+        for (int i = 0; i < 10000; i++) {
+          estimator.update(40);
+        }
+        return null;
+      };
+      List<Future<Void>> results = executor.invokeAll(IntStream.range(0, 8).mapToObj(i -> task)
+        .collect(Collectors.toList()));
+      for (Future<Void> result : results) {
+        result.get();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    Assert.assertEquals(40, estimator.getMovingAverage());
+    Assert.assertEquals(40, estimator.getValueAtQuantile(0.5));
+  }
+
+  @Test
+  public void histogramForgetsOldWindows() {
+    AtomicLong clock = new AtomicLong();
+    LatencyHistogram histogram = new LatencyHistogram(1000, clock::get);
+    histogram.record(10);
+    clock.set(2500);
+    histogram.record(500);
+    Assert.assertEquals(10, histogram.getValueAtQuantile(0.5));
+    clock.set(3000);
+    Assert.assertEquals(500, histogram.getValueAtQuantile(0.5), 500 / 32.);
+    clock.set(10000);
+    Assert.assertEquals(0, histogram.getValueAtQuantile(0.5));
+  }
+
+  @Test
+  public void sampleFollowsRecordedLatencies() {
+    LatencyHistogram histogram = new LatencyHistogram(60000);
+    Random random = new Random(42);
+    Assert.assertFalse(histogram.sample(1, random).isPresent());
+    for (int i = 0; i < 900; i++) {
+      histogram.record(20);
+    }
+    for (int i = 0; i < 100; i++) {
+      histogram.record(1000);
+    }
+    Assert.assertFalse(histogram.sample(1001, random).isPresent());
+    int slow = 0;
+    for (int i = 0; i < 10000; i++) {
+      OptionalLong sample = histogram.sample(1000, random);
+      Assert.assertTrue(sample.isPresent());
+      if (sample.getAsLong() != 20) {
+        Assert.assertEquals(1000, sample.getAsLong(), 1000 / 32.);
+        slow++;
+      }
+    }
+    Assert.assertEquals(1000, slow, 100);
+  }
+}
@@ -0,0 +1,75 @@
+/*
+ * Corona-Warn-App / cwa-verification
+ *
+ * (C) 2020, T-Systems International GmbH
+ *
+ * Deutsche Telekom AG and all other contributors /
+ * copyright owners license this file to you under the Apache
+ * License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package app.coronawarn.verification.service;
+
+import java.util.Random;
+import org.apache.commons.math3.distribution.PoissonDistribution;
+import org.apache.commons.math3.stat.inference.ChiSquareTest;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PoissonSamplerTest {
+
+  private static final int SAMPLES = 200000;
+
+  @Test
+  public void sampleZeroMean() {
+    Assert.assertEquals(0, PoissonSampler.sample(0));
+  }
+
+  @Test
+  public void sampleMatchesPoissonDistribution() {
+    Random random = new Random(42);
+    for (double mean : new double[] {1, 7, 10, 35, 250, 3000}) {
+      assertPoisson(mean, random);
+    }
+  }
+
+  private static void assertPoisson(double mean, Random random) {
+    PoissonDistribution distribution = new PoissonDistribution(mean);
+    int min = Math.max(0, (int) (mean - 5 * Math.sqrt(mean)) - 1);
+    int max = (int) (mean + 5 * Math.sqrt(mean)) + 1;
+    long[] observed = new long[max - min + 1];
+    double sum = 0;
+    double sumOfSquares = 0;
+    for (int i = 0; i < SAMPLES; i++) {
+      long value = PoissonSampler.sample(mean, random);
+      sum += value;
+      sumOfSquares += value * value;
+      observed[(int) Math.min(max, Math.max(min, value)) - min]++;
+    }
+    double[] expected = new double[observed.length];
+    for (int k = min; k <= max; k++) {
+      expected[k - min] = distribution.probability(k) * SAMPLES;
+    }
+    expected[0] = distribution.cumulativeProbability(min) * SAMPLES;
+    expected[expected.length - 1] = (1 - distribution.cumulativeProbability(max - 1)) * SAMPLES;
+
+    double sampleMean = sum / SAMPLES;
+    double sampleVariance = sumOfSquares / SAMPLES - sampleMean * sampleMean;
+    Assert.assertEquals(mean, sampleMean, 5 * Math.sqrt(mean / SAMPLES));
+    Assert.assertEquals(1.0, sampleVariance / mean, 0.03);
+    Assert.assertTrue("chi-square test failed for mean " + mean,
+      new ChiSquareTest().chiSquareTest(expected, observed) > 0.001);
+  }
+}
@@ -26,15 +26,26 @@
 import app.coronawarn.verification.domain.VerificationTan;
 import app.coronawarn.verification.model.TanSourceOfTrust;
 import app.coronawarn.verification.model.TanType;
+import app.coronawarn.verification.model.TanVerificationStatus;
+import app.coronawarn.verification.model.TeleTanVerification;
 import app.coronawarn.verification.repository.VerificationTanRepository;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import javax.persistence.EntityManagerFactory;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import static org.assertj.core.api.Assertions.assertThat;
 import org.junit.Assert;
 import static org.junit.Assert.assertFalse;
@@ -46,6 +57,7 @@
 import org.slf4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringRunner;
 
@@ -84,9 +96,19 @@ public class TanServiceTest {
   @Autowired
   private VerificationApplicationConfig config;
 
+  @Autowired
+  private TeleTanRateLimiter teleTanRateLimiter;
+
+  @Autowired
+  private HashingService hashingService;
+
+  @Autowired
+  private EntityManagerFactory entityManagerFactory;
+
   @Before
   public void setUp() {
     tanRepository.deleteAll();
+    teleTanRateLimiter.seed();
   }
 
   /**
@@ -151,6 +173,163 @@ public void getEntityByTan() {
     Assert.assertEquals(tan, tanFromDB.orElse(null));
   }
 
+  @Test
+  public void redeemTan() {
+    String tan = tanService.generateVerificationTan(TEST_TAN_SOURCE_OF_TRUST);
+    assertTrue(tanService.redeemTan(tan));
+    assertFalse(tanService.getEntityByTan(tan).isPresent());
+    assertFalse(tanService.redeemTan(tan));
+  }
+
+  @Test
+  public void redeemInvalidTan() {
+    VerificationTan expired = tanService.generateVerificationTan(TEST_TAN, TEST_TAN_TYPE, TEST_TAN_SOURCE_OF_TRUST);
+    expired.setValidUntil(LocalDateTime.now().minusDays(1));
+    tanService.saveTan(expired);
+    assertFalse(tanService.redeemTan(TEST_TAN));
+
+    VerificationTan redeemed = tanService.generateVerificationTan(TEST_TELE_TAN, TEST_TAN_TYPE, TEST_TAN_SOURCE_OF_TRUST);
+    redeemed.setRedeemed(true);
+    tanService.saveTan(redeemed);
+    assertFalse(tanService.redeemTan(TEST_TELE_TAN));
+
+    assertTrue(tanService.getEntityByTan(TEST_TAN).isPresent());
+    assertTrue(tanService.getEntityByTan(TEST_TELE_TAN).isPresent());
+  }
+
+  @Test
+  public void generateVerificationTanPartitioned() {
+    config.getEntities().getCleanup().setPartitioned(true);
+    try {
+      String tan = tanService.generateVerificationTan(TEST_TAN_SOURCE_OF_TRUST);
+      assertTrue(TAN_PATTERN.matcher(tan).matches());
+      assertTrue(tanService.getEntityByTan(tan).orElseThrow().canBeRedeemed(LocalDateTime.now()));
+    } finally {
+      config.getEntities().getCleanup().setPartitioned(false);
+    }
+  }
+
+  @Test
+  public void generateVerificationTans() {
+    List<String> tans = tanService.generateVerificationTans(5, TEST_TAN_SOURCE_OF_TRUST);
+
+    Assert.assertEquals(5, tans.size());
+    Assert.assertEquals(5, tanRepository.count());
+    for (String tan : tans) {
+      assertTrue(TAN_PATTERN.matcher(tan).matches());
+      assertTrue(tanService.getEntityByTan(tan).orElseThrow().canBeRedeemed(LocalDateTime.now()));
+    }
+  }
+
+  @Test
+  public void generateVerificationTansInOneBatch() {
+    Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    statistics.setStatisticsEnabled(true);
+    try {
+      statistics.clear();
+      tanService.generateVerificationTans(20, TEST_TAN_SOURCE_OF_TRUST);
+
+      Assert.assertEquals(20, statistics.getEntityInsertCount());
+      // one batched insert statement and at most two sequence calls, without batching one statement per TAN
+      assertTrue(statistics.getPrepareStatementCount() <= 3);
+    } finally {
+      statistics.setStatisticsEnabled(false);
+    }
+  }
+
+  @Test
+  public void insertTansOneByOneIfTanExists() {
+    tanService.saveTan(tanService.generateVerificationTan(TEST_TAN, TEST_TAN_TYPE, TEST_TAN_SOURCE_OF_TRUST));
+    Iterator<String> candidates =
+      Stream.concat(Stream.of(TEST_TAN), Stream.generate(() -> UUID.randomUUID().toString())).iterator();
+
+    List<String> tans = tanService.insertTans(candidates::next, 3, TEST_TAN_SOURCE_OF_TRUST);
+
+    Assert.assertEquals(3, tans.size());
+    assertFalse(tans.contains(TEST_TAN));
+    Assert.assertEquals(4, tanRepository.count());
+  }
+
+  @Test
+  public void insertTanRetriesExistingTan() {
+    tanService.saveTan(tanService.generateVerificationTan(TEST_TAN, TEST_TAN_TYPE, TEST_TAN_SOURCE_OF_TRUST));
+    String newTan = UUID.randomUUID().toString();
+    Iterator<String> candidates = Arrays.asList(TEST_TAN, TEST_TAN, newTan).iterator();
+
+    Assert.assertEquals(newTan, tanService.insertTan(candidates::next, TEST_TAN_SOURCE_OF_TRUST));
+    assertFalse(candidates.hasNext());
+    Assert.assertEquals(2, tanRepository.count());
+  }
+
+  @Test
+  public void insertTanGivesUpAfterMaxAttempts() {
+    tanService.saveTan(tanService.generateVerificationTan(TEST_TAN, TEST_TAN_TYPE, TEST_TAN_SOURCE_OF_TRUST));
+    AtomicInteger attempts = new AtomicInteger();
+
+    try {
+      tanService.insertTan(() -> {
+        attempts.incrementAndGet();
+        return TEST_TAN;
+      }, TEST_TAN_SOURCE_OF_TRUST);
+      Assert.fail("The existing TAN was inserted again.");
+    } catch (DataIntegrityViolationException e) {
+      Assert.assertEquals(TanService.MAX_INSERT_ATTEMPTS, attempts.get());
+    }
+    Assert.assertEquals(1, tanRepository.count());
+  }
+
+  @Test(expected = DataIntegrityViolationException.class)
+  public void saveDuplicateTanHash() {
+    tanService.saveTan(tanService.generateVerificationTan(TEST_TAN, TEST_TAN_TYPE, TEST_TAN_SOURCE_OF_TRUST));
+    tanService.saveTan(tanService.generateVerificationTan(TEST_TAN, TEST_TAN_TYPE, TEST_TAN_SOURCE_OF_TRUST));
+  }
+
+  @Test
+  public void lookupTanByBinaryHash() {
+    String tan = tanService.generateVerificationTan(TEST_TAN_SOURCE_OF_TRUST);
+    String otherTan = tanService.generateVerificationTan(TEST_TAN_SOURCE_OF_TRUST);
+    config.getEntities().setBinaryHashes(true);
+    try {
+      assertTrue(tanService.getEntityByTan(tan).isPresent());
+      assertTrue(tanService.getEntityByTan(otherTan).isPresent());
+      assertFalse(tanService.getEntityByTan(TEST_TAN).isPresent());
+      assertTrue(tanService.redeemTan(tan));
+      assertFalse(tanService.getEntityByTan(tan).isPresent());
+    } finally {
+      config.getEntities().setBinaryHashes(false);
+    }
+  }
+
+  @Test
+  public void redeemTans() {
+    String tan = tanService.generateVerificationTan(TEST_TAN_SOURCE_OF_TRUST);
+    VerificationTan expired = tanService.generateVerificationTan(TEST_TAN, TEST_TAN_TYPE, TEST_TAN_SOURCE_OF_TRUST);
+    expired.setValidUntil(LocalDateTime.now().minusDays(1));
+    tanService.saveTan(expired);
+
+    List<TanVerificationStatus> results = tanService.redeemTans(Arrays.asList(tan, TEST_TAN, "unknown", tan));
+
+    Assert.assertEquals(Arrays.asList(TanVerificationStatus.VERIFIED, TanVerificationStatus.INVALID,
+      TanVerificationStatus.INVALID, TanVerificationStatus.INVALID), results);
+    assertFalse(tanService.getEntityByTan(tan).isPresent());
+    assertTrue(tanService.getEntityByTan(TEST_TAN).isPresent());
+  }
+
+  @Test
+  public void redeemTansByBinaryHash() {
+    String tan = tanService.generateVerificationTan(TEST_TAN_SOURCE_OF_TRUST);
+    config.getEntities().setBinaryHashes(true);
+    try {
+      List<TanVerificationStatus> results = tanService.redeemTans(Arrays.asList(tan, "unknown", tan));
+
+      Assert.assertEquals(Arrays.asList(TanVerificationStatus.VERIFIED, TanVerificationStatus.INVALID,
+        TanVerificationStatus.INVALID), results);
+      assertFalse(tanService.getEntityByTan(tan).isPresent());
+    } finally {
+      config.getEntities().setBinaryHashes(false);
+    }
+  }
+
   @Test
   public void checkTanAlreadyExist() {
     VerificationTan tan = new VerificationTan();
@@ -196,6 +375,16 @@ public void verifyTeletan() {
     assertFalse(tanService.verifyTeleTan("R3ZNUI0"));
   }
 
+  @Test
+  public void teleTanVerificationCarriesHashAndEntity() {
+    String teleTan = tanService.generateVerificationTeleTan();
+    TeleTanVerification verification = tanService.getTeleTanVerification(teleTan);
+    assertTrue(verification.isVerified());
+    Assert.assertEquals(hashingService.hash(teleTan), verification.getTeleTanHash());
+    Assert.assertEquals(verification.getTeleTanHash(), verification.getEntity().get().getTanHash());
+    Assert.assertNull(tanService.getTeleTanVerification("R3ZNUI0").getTeleTanHash());
+  }
+
   @Test
   public void verifyAlreadyRedeemedTeleTan() {
     String teleTan = tanService.generateVerificationTeleTan();
@@ -292,6 +481,44 @@ public void testRateLimitShouldNotCountTeleTansOlderThanDefinedTimeWindow() {
     assertThat(tanService.isTeleTanRateLimitNotExceeded()).isFalse();
   }
 
+  @Test
+  public void testRateLimitIsSeededFromDatabase() {
+    config.getTan().getTele().getRateLimiting().setCount(TELE_TAN_RATE_LIMIT_COUNT);
+    config.getTan().getTele().getRateLimiting().setSeconds(TELE_TAN_RATE_LIMIT_SECONDS);
+
+    for (int i = 0; i < TELE_TAN_RATE_LIMIT_COUNT; i++) tanService.generateVerificationTeleTan();
+
+    assertThat(tanService.isTeleTanRateLimitNotExceeded()).isFalse();
+
+    teleTanRateLimiter.seed();
+
+    assertThat(tanService.isTeleTanRateLimitNotExceeded()).isFalse();
+
+    tanRepository.deleteAll();
+    teleTanRateLimiter.seed();
+
+    assertThat(tanService.isTeleTanRateLimitNotExceeded()).isTrue();
+  }
+
+  @Test
+  public void testRateLimitCheckForTeleTanInSharedDatabase() {
+    config.getTan().getTele().getRateLimiting().setCount(TELE_TAN_RATE_LIMIT_COUNT);
+    config.getTan().getTele().getRateLimiting().setSeconds(TELE_TAN_RATE_LIMIT_SECONDS);
+    config.getTan().getTele().getRateLimiting().setShared(true);
+
+    try {
+      for (int i = 0; i < TELE_TAN_RATE_LIMIT_COUNT - 1; i++) tanService.generateVerificationTeleTan();
+
+      assertThat(tanService.isTeleTanRateLimitNotExceeded()).isTrue();
+
+      tanService.generateVerificationTeleTan();
+
+      assertThat(tanService.isTeleTanRateLimitNotExceeded()).isFalse();
+    } finally {
+      config.getTan().getTele().getRateLimiting().setShared(false);
+    }
+  }
+
   /**
    * Check Tele-TAN syntax constraints.
    *
@@ -0,0 +1,97 @@
+/*
+ * Corona-Warn-App / cwa-verification
+ *
+ * (C) 2020, T-Systems International GmbH
+ *
+ * Deutsche Telekom AG and all other contributors /
+ * copyright owners license this file to you under the Apache
+ * License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package app.coronawarn.verification.service;
+
+import app.coronawarn.verification.config.VerificationApplicationConfig;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TeleTanPoolTest {
+
+  private static final String TELE_TAN_REGEX = "^[2-9A-HJ-KMNP-Z]{10}$";
+
+  private final HashingService hashingService = new HashingService();
+  private VerificationApplicationConfig config;
+  private MeterRegistry meterRegistry;
+  private TeleTanPool teleTanPool;
+
+  @Before
+  public void setUp() {
+    config = new VerificationApplicationConfig();
+    config.getTan().getTele().getValid().setLength(9);
+    config.getTan().getTele().getPool().setSize(10);
+    config.getTan().getTele().getPool().setLowWatermark(5);
+    meterRegistry = new SimpleMeterRegistry();
+  }
+
+  @After
+  public void tearDown() {
+    teleTanPool.shutdown();
+  }
+
+  @Test
+  public void takeFromRefilledPool() throws InterruptedException {
+    teleTanPool = new TeleTanPool(config, hashingService, meterRegistry);
+    teleTanPool.init();
+    awaitPoolSize(10);
+
+    Set<String> teleTans = new HashSet<>();
+    for (int i = 0; i < 20; i++) {
+      TeleTanPool.Candidate candidate = teleTanPool.take();
+      Assert.assertTrue(candidate.getTeleTan().matches(TELE_TAN_REGEX));
+      Assert.assertEquals(hashingService.hash(candidate.getTeleTan()), candidate.getTeleTanHash());
+      teleTans.add(candidate.getTeleTan());
+    }
+    Assert.assertEquals(20, teleTans.size());
+    awaitPoolSize(5);
+  }
+
+  @Test
+  public void generateWithoutMissIfDisabled() {
+    config.getTan().getTele().getPool().setEnabled(false);
+    teleTanPool = new TeleTanPool(config, hashingService, meterRegistry);
+    teleTanPool.init();
+
+    TeleTanPool.Candidate candidate = teleTanPool.take();
+
+    Assert.assertTrue(candidate.getTeleTan().matches(TELE_TAN_REGEX));
+    Assert.assertEquals(0.0, meterRegistry.get("verification_teletan_pool.misses").counter().count(), 0.0);
+    Assert.assertEquals(0.0, meterRegistry.get("verification_teletan_pool.size").gauge().value(), 0.0);
+  }
+
+  private void awaitPoolSize(int size) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (meterRegistry.get("verification_teletan_pool.size").gauge().value() < size
+      && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+    Assert.assertTrue(meterRegistry.get("verification_teletan_pool.size").gauge().value() >= size);
+  }
+}
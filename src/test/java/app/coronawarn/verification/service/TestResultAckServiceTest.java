@@ -0,0 +1,112 @@
+/*
+ * Corona-Warn-App / cwa-verification
+ *
+ * (C) 2020, T-Systems International GmbH
+ *
+ * Deutsche Telekom AG and all other contributors /
+ * copyright owners license this file to you under the Apache
+ * License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package app.coronawarn.verification.service;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import app.coronawarn.verification.VerificationApplication;
+import app.coronawarn.verification.domain.VerificationTestResultAck;
+import app.coronawarn.verification.exception.VerificationServerException;
+import app.coronawarn.verification.model.MobileTestResultRequest;
+import app.coronawarn.verification.repository.VerificationTestResultAckRepository;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringRunner;
+
+// the acks are stored in a database of their own, so the scheduled flushes of the other test contexts do not claim them
+@RunWith(SpringRunner.class)
+@SpringBootTest(
+  properties = {
+    "test-result-ack.flush-rate=3600000",
+    "spring.datasource.url=jdbc:h2:mem:test-result-ack"
+  }
+)
+@ContextConfiguration(classes = VerificationApplication.class)
+public class TestResultAckServiceTest {
+
+  private static final MobileTestResultRequest TEST_ACK =
+    new MobileTestResultRequest("123456789012345", LocalDate.of(2020, 6, 1));
+
+  @MockBean
+  private TestResultServerService testResultServerService;
+
+  @Autowired
+  private VerificationTestResultAckRepository ackRepository;
+
+  @Autowired
+  private TestResultAckService testResultAckService;
+
+  @Before
+  public void before() {
+    ackRepository.deleteAll();
+  }
+
+  @Test
+  public void ackIsStoredAndForwarded() {
+    Assert.assertEquals(HttpStatus.NO_CONTENT, testResultAckService.ackTestResult(TEST_ACK).getStatusCode());
+    testResultAckService.ackTestResult(TEST_ACK);
+    Assert.assertEquals(1, ackRepository.count());
+    verify(testResultServerService, times(0)).ackTestResult(any());
+
+    when(testResultServerService.ackTestResult(TEST_ACK)).thenReturn(ResponseEntity.ok().build());
+    testResultAckService.flush();
+    verify(testResultServerService, times(1)).ackTestResult(TEST_ACK);
+    Assert.assertEquals(0, ackRepository.count());
+  }
+
+  @Test
+  public void acksOfDifferentDatesAreNotCoalesced() {
+    testResultAckService.ackTestResult(TEST_ACK);
+    testResultAckService.ackTestResult(
+      new MobileTestResultRequest(TEST_ACK.getMobileTestId(), TEST_ACK.getDatePatientInfectious().plusDays(1)));
+    Assert.assertEquals(2, ackRepository.count());
+  }
+
+  @Test
+  public void failedAckIsRetriedLater() {
+    when(testResultServerService.ackTestResult(TEST_ACK))
+      .thenThrow(new VerificationServerException(HttpStatus.SERVICE_UNAVAILABLE, "unavailable"));
+    testResultAckService.ackTestResult(TEST_ACK);
+    testResultAckService.flush();
+    testResultAckService.flush();
+    verify(testResultServerService, times(1)).ackTestResult(TEST_ACK);
+    List<VerificationTestResultAck> acks = ackRepository.findAll();
+    Assert.assertEquals(1, acks.size());
+    Assert.assertEquals(1, acks.get(0).getAttempts());
+    Assert.assertTrue(acks.get(0).getNextAttemptAt().isAfter(LocalDateTime.now()));
+  }
+}
@@ -23,17 +23,33 @@
 package app.coronawarn.verification.service;
 
 import app.coronawarn.verification.client.TestResultServerClient;
+import app.coronawarn.verification.config.VerificationApplicationConfig;
 import app.coronawarn.verification.model.HashedGuid;
 import app.coronawarn.verification.model.LabTestResult;
+import static app.coronawarn.verification.model.LabTestResult.PENDING;
 import static app.coronawarn.verification.model.LabTestResult.POSITIVE;
 import static app.coronawarn.verification.model.LabTestResult.REDEEMED;
 import app.coronawarn.verification.model.MobileTestResultRequest;
 import app.coronawarn.verification.model.TestResult;
 import static app.coronawarn.verification.model.TestResult.ResultChannel.LAB;
+import feign.FeignException;
+import feign.Request;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.Before;
 import org.junit.Test;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.catchThrowable;
 import org.springframework.http.ResponseEntity;
 
 public class TestResultServerServiceTest {
@@ -43,11 +59,20 @@ public class TestResultServerServiceTest {
   private static final String TEST_RESULT_PADDING = "";
   public static final TestResult TEST_LAB_POSITIVE_RESULT = new TestResult(POSITIVE, LAB);
   public static final TestResult TEST_LAB_REDEEMED_RESULT = new TestResult(REDEEMED, LAB);
+  public static final String TEST_GUI_HASH_PENDING = "f0e4c2f76c58916ec258f246851bea091d14d4247a2fc3e18694461b1816e13d";
+  public static final String TEST_GUI_HASH_UNKNOWN = "f0e4c2f76c58916ec258f246851bea091d14d4247a2fc3e18694461b1816e13e";
+  private VerificationApplicationConfig config;
+  private TestResultServerClientMock testResultServerClient;
+  private SimpleMeterRegistry meterRegistry;
   private TestResultServerService testResultServerService;
 
   @Before
   public void setUp() {
-    testResultServerService = new TestResultServerService(new TestResultServerClientMock());
+    config = new VerificationApplicationConfig();
+    testResultServerClient = new TestResultServerClientMock();
+    meterRegistry = new SimpleMeterRegistry();
+    testResultServerService = new TestResultServerService(testResultServerClient,
+      new TestResultCache(config, meterRegistry), new TestResultServerGuard(config, meterRegistry), meterRegistry);
   }
 
   /**
@@ -68,11 +93,127 @@ public void resultRedeemed() {
     assertThat(testResult).isEqualTo(TEST_LAB_REDEEMED_RESULT);
   }
 
+  /**
+   * Test that a final result is cached and its copies do not share the padding.
+   */
+  @Test
+  public void resultCached() {
+    TestResult testResult = testResultServerService.result(new HashedGuid(TEST_GUI_HASH_1));
+    testResult.applyPadding();
+    TestResult cachedResult = testResultServerService.result(new HashedGuid(TEST_GUI_HASH_1));
+    assertThat(cachedResult).isEqualTo(TEST_LAB_POSITIVE_RESULT);
+    assertThat(testResultServerClient.resultCalls).isEqualTo(1);
+  }
+
+  /**
+   * Test that a pending result expires after the pending ttl.
+   */
+  @Test
+  public void pendingResultExpires() {
+    config.getTestResultCache().setPendingTtl(0);
+    testResultServerService.result(new HashedGuid(TEST_GUI_HASH_PENDING));
+    testResultServerService.result(new HashedGuid(TEST_GUI_HASH_PENDING));
+    assertThat(testResultServerClient.resultCalls).isEqualTo(2);
+    testResultServerService.result(new HashedGuid(TEST_GUI_HASH_1));
+    testResultServerService.result(new HashedGuid(TEST_GUI_HASH_1));
+    assertThat(testResultServerClient.resultCalls).isEqualTo(3);
+  }
+
+  /**
+   * Test that the cache does not exceed its maximum size.
+   */
+  @Test
+  public void cacheBounded() {
+    config.getTestResultCache().setMaxSize(1);
+    testResultServerService.result(new HashedGuid(TEST_GUI_HASH_1));
+    testResultServerService.result(new HashedGuid(TEST_GUI_HASH_2));
+    testResultServerService.result(new HashedGuid(TEST_GUI_HASH_2));
+    assertThat(testResultServerClient.resultCalls).isEqualTo(2);
+    testResultServerService.result(new HashedGuid(TEST_GUI_HASH_1));
+    assertThat(testResultServerClient.resultCalls).isEqualTo(3);
+  }
+
+  /**
+   * Test that a client error is cached and every hit throws its own exception.
+   */
+  @Test
+  public void clientErrorCached() {
+    Throwable error = catchThrowable(() -> testResultServerService.result(new HashedGuid(TEST_GUI_HASH_UNKNOWN)));
+    Throwable firstCachedError =
+      catchThrowable(() -> testResultServerService.result(new HashedGuid(TEST_GUI_HASH_UNKNOWN)));
+    Throwable secondCachedError =
+      catchThrowable(() -> testResultServerService.result(new HashedGuid(TEST_GUI_HASH_UNKNOWN)));
+    assertThat(testResultServerClient.resultCalls).isEqualTo(1);
+    for (Throwable cachedError : Arrays.asList(firstCachedError, secondCachedError)) {
+      assertThat(cachedError).isInstanceOf(FeignException.class).isNotSameAs(error);
+      assertThat(((FeignException) cachedError).status()).isEqualTo(404);
+      assertThat(((FeignException) cachedError).contentUTF8()).isEqualTo("unknown");
+    }
+    assertThat(firstCachedError).isNotSameAs(secondCachedError);
+  }
+
+  /**
+   * Test that concurrent polls of the same test are merged into one call and get their own copies.
+   */
+  @Test
+  public void concurrentPollsCoalesced() throws Exception {
+    MobileTestResultRequest request = new MobileTestResultRequest("123456789012345", LocalDate.now());
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      Future<TestResult> first = executor.submit(() -> testResultServerService.pollTestResult(request));
+      Future<TestResult> second = executor.submit(() -> testResultServerService.pollTestResult(request));
+      while (meterRegistry.get("verification_single_flight.coalesced").tag("operation", "poll").counter()
+        .count() < 1) {
+        Thread.sleep(1);
+      }
+      testResultServerClient.pollLatch.countDown();
+      assertThat(first.get()).isEqualTo(TEST_LAB_POSITIVE_RESULT);
+      assertThat(second.get()).isEqualTo(TEST_LAB_POSITIVE_RESULT);
+      assertThat(first.get()).isNotSameAs(second.get());
+      assertThat(testResultServerClient.pollCalls.get()).isEqualTo(1);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Test that polls are answered with a pending result while the breaker is open.
+   */
+  @Test
+  public void pollPendingWhileBreakerOpen() {
+    config.getTestResultClient().setFailureThreshold(1);
+    testResultServerService = new TestResultServerService(testResultServerClient,
+      new TestResultCache(config, meterRegistry), new TestResultServerGuard(config, meterRegistry), meterRegistry);
+    testResultServerClient.pollLatch.countDown();
+    testResultServerClient.pollFailure = true;
+    MobileTestResultRequest request = new MobileTestResultRequest("123456789012345", LocalDate.now());
+    assertThatThrownBy(() -> testResultServerService.pollTestResult(request)).isInstanceOf(IllegalStateException.class);
+    testResultServerClient.pollFailure = false;
+    TestResult testResult = testResultServerService.pollTestResult(request);
+    assertThat(testResult.getResult()).isEqualTo(PENDING);
+    assertThat(testResultServerClient.pollCalls.get()).isEqualTo(1);
+  }
+
   public static class TestResultServerClientMock implements TestResultServerClient {
 
+    private volatile boolean pollFailure;
+
+    private final CountDownLatch pollLatch = new CountDownLatch(1);
+    private final AtomicInteger pollCalls = new AtomicInteger();
+    private int resultCalls;
+
     @Override
     public TestResult pollTestResult(MobileTestResultRequest mobileTestResultRequest) {
-      return null;
+      pollCalls.incrementAndGet();
+      try {
+        pollLatch.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      if (pollFailure) {
+        throw new IllegalStateException("The test result server failed");
+      }
+      return new TestResult(POSITIVE, LAB);
     }
 
     @Override
@@ -82,6 +223,15 @@ public ResponseEntity<Void> ackTestResult(MobileTestResultRequest mobileTestResu
 
     @Override
     public TestResult result(HashedGuid guid) {
+      resultCalls++;
+      if (guid.getId().equals(TEST_GUI_HASH_UNKNOWN)) {
+        throw new FeignException.FeignClientException(404, "not found", Request.create(Request.HttpMethod.POST,
+          "/api/v1/app/result", Collections.emptyMap(), null, StandardCharsets.UTF_8, null),
+          "unknown".getBytes(StandardCharsets.UTF_8));
+      }
+      if (guid.getId().equals(TEST_GUI_HASH_PENDING)) {
+        return new TestResult(PENDING, LAB);
+      }
       if (guid.getId().equals(TEST_GUI_HASH_1)) {
         return new TestResult(POSITIVE, LAB);
       }